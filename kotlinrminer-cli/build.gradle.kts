@@ -10,6 +10,22 @@ tasks.test {
     useJUnitPlatform()
 }
 
+val parallelOperationDetectionTest by tasks.registering(Test::class) {
+    description = "Runs TestAllRefactorings with the parallel extract and inline operation detection."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform()
+    filter {
+        includeTestsMatching("TestAllRefactorings")
+    }
+    systemProperty("kotlinrminer.parallelOperationDetection", "true")
+}
+
+tasks.check {
+    dependsOn(parallelOperationDetectionTest)
+}
+
 tasks.jar {
     manifest {
         attributes["Implementation-Version"] = archiveVersion
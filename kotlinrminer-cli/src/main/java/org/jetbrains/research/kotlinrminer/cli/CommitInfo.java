@@ -0,0 +1,117 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Metadata and changed files of a commit, passed to {@link RefactoringHandler#skipCommit(CommitInfo)} before the
+ * commit is diffed and parsed. Everything is loaded lazily: a filter looking only at the author does not pay for
+ * reading the message, and the changed files are listed, without rename detection or file contents, only when
+ * requested.
+ */
+public class CommitInfo {
+    private final RevCommit commit;
+    private final ObjectReader objectReader;
+    private RevCommit parsedCommit;
+    private List<String> changedFilePaths;
+
+    CommitInfo(RevCommit commit, ObjectReader objectReader) {
+        this.commit = commit;
+        this.objectReader = objectReader;
+    }
+
+    public String getId() {
+        return commit.getId().getName();
+    }
+
+    public int getParentCount() {
+        return commit.getParentCount();
+    }
+
+    /**
+     * The commit time, in seconds since the epoch.
+     */
+    public int getCommitTime() {
+        return commit.getCommitTime();
+    }
+
+    public PersonIdent getAuthor() {
+        return getParsedCommit().getAuthorIdent();
+    }
+
+    public PersonIdent getCommitter() {
+        return getParsedCommit().getCommitterIdent();
+    }
+
+    public String getMessage() {
+        return getParsedCommit().getFullMessage();
+    }
+
+    public String getShortMessage() {
+        return getParsedCommit().getShortMessage();
+    }
+
+    /**
+     * Paths of all files (not only Kotlin files) added, modified or deleted with respect to the first parent.
+     */
+    public List<String> getChangedFilePaths() {
+        if (changedFilePaths == null) {
+            try {
+                changedFilePaths = Collections.unmodifiableList(listChangedFilePaths());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return changedFilePaths;
+    }
+
+    public int getChangedFilesCount() {
+        return getChangedFilePaths().size();
+    }
+
+    /**
+     * Returns the commit with its body, which history walks usually do not retain.
+     */
+    private RevCommit getParsedCommit() {
+        if (parsedCommit == null) {
+            if (commit.getRawBuffer() != null) {
+                parsedCommit = commit;
+            } else {
+                try (RevWalk walk = new RevWalk(objectReader)) {
+                    parsedCommit = walk.parseCommit(commit);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return parsedCommit;
+    }
+
+    private List<String> listChangedFilePaths() throws IOException {
+        List<String> filePaths = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(objectReader);
+             TreeWalk treeWalk = new TreeWalk(objectReader)) {
+            if (commit.getParentCount() > 0) {
+                treeWalk.addTree(walk.parseCommit(commit.getParent(0)).getTree());
+            } else {
+                treeWalk.addTree(new EmptyTreeIterator());
+            }
+            treeWalk.addTree(walk.parseCommit(commit).getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            while (treeWalk.next()) {
+                filePaths.add(treeWalk.getPathString());
+            }
+        }
+        return filePaths;
+    }
+}
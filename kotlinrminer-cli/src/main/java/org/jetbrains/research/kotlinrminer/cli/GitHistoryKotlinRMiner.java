@@ -1,68 +1,286 @@
 package org.jetbrains.research.kotlinrminer.cli;
 
-import org.apache.commons.io.IOUtils;
 import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.jetbrains.kotlin.com.intellij.openapi.project.Project;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLModel;
 import org.jetbrains.research.kotlinrminer.common.RefactoringType;
+import org.jetbrains.research.kotlinrminer.common.util.DirectoryTrie;
 
 import java.io.File;
-import java.io.StringWriter;
 import java.util.*;
 
 public class GitHistoryKotlinRMiner {
     private static final String GITHUB_URL = "https://github.com/";
     private static final String BITBUCKET_URL = "https://bitbucket.org/";
+    private static final int REPOSITORY_DIRECTORIES_CACHE_SIZE = 2;
+    private static final int REPORTED_REFACTORINGS_CACHE_SIZE = 10000;
+    /**
+     * Estimated heap used per byte of Kotlin source by a model whose function bodies are all built. The diff only
+     * builds the bodies it compares, so this is an upper bound.
+     */
+    private static final int MODEL_BYTES_PER_SOURCE_BYTE = 30;
+    private static final int FILES_PER_BATCH = 500;
+    private static final long MB = 1024 * 1024;
     private final RefactoringType[] refactoringTypesToConsider = RefactoringType.ALL;
+    /**
+     * Directories containing Kotlin files of the recently visited trees, by tree id. The directories of a tree are
+     * derived from the ones of a related (parent or child) tree whenever possible, as adjacent commits of a walk
+     * share their trees and rarely add or remove directories.
+     */
+    private final Map<ObjectId, DirectoryTrie> repositoryDirectoriesCache =
+        new LinkedHashMap<ObjectId, DirectoryTrie>(REPOSITORY_DIRECTORIES_CACHE_SIZE + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, DirectoryTrie> eldest) {
+                return size() > REPOSITORY_DIRECTORIES_CACHE_SIZE;
+            }
+        };
+    private final GitService gitService;
+    /**
+     * Commits whose models are estimated to exceed this size are analyzed from their declarations only, e.g.
+     * {@code -Dkotlinrminer.modelMemoryBudget=2048} (in megabytes). Defaults to half of the maximum heap size.
+     */
+    private final long modelMemoryBudget =
+        Long.getLong("kotlinrminer.modelMemoryBudget", Runtime.getRuntime().maxMemory() / 2 / MB) * MB;
+    private MergeCommitStrategy mergeCommitStrategy;
+    /**
+     * Descriptions of the refactorings reported for the recently visited commits, by commit id, used to deduplicate
+     * the refactorings of merge commits against the commits of the merged branches.
+     */
+    private final Map<ObjectId, List<String>> reportedRefactorings =
+        new LinkedHashMap<ObjectId, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, List<String>> eldest) {
+                return size() > REPORTED_REFACTORINGS_CACHE_SIZE;
+            }
+        };
+
+    public GitHistoryKotlinRMiner() {
+        this(new GitService());
+    }
+
+    /**
+     * @param gitService the service computing the changed files of the commits, e.g. with a custom rename detection
+     */
+    public GitHistoryKotlinRMiner(GitService gitService) {
+        this.gitService = gitService;
+    }
+
+    /**
+     * Sets how merge commits are analyzed. If not set, {@link #detectBetweenCommits} skips merge commits and the
+     * other methods compare them with their first parent.
+     */
+    public void setMergeCommitStrategy(MergeCommitStrategy mergeCommitStrategy) {
+        this.mergeCommitStrategy = mergeCommitStrategy;
+    }
 
     protected List<Refactoring> detectRefactorings(@Nullable Project project,
                                                    GitService gitService,
                                                    Repository repository,
                                                    RevCommit currentCommit,
                                                    RefactoringHandler handler) throws Exception {
-        List<Refactoring> refactoringsAtRevision;
+        try (RepositoryReader reader = new RepositoryReader(repository)) {
+            return detectRefactorings(project, gitService, repository, reader, currentCommit, handler);
+        }
+    }
+
+    protected List<Refactoring> detectRefactorings(@Nullable Project project,
+                                                   GitService gitService,
+                                                   Repository repository,
+                                                   RepositoryReader reader,
+                                                   RevCommit currentCommit,
+                                                   RefactoringHandler handler) throws Exception {
         String commitId = currentCommit.getId().getName();
+        List<Refactoring> refactoringsAtRevision;
+        if (currentCommit.getParentCount() > 1 && mergeCommitStrategy == MergeCommitStrategy.EACH_PARENT) {
+            refactoringsAtRevision =
+                detectMergeRefactorings(project, gitService, repository, reader, currentCommit, handler);
+        } else {
+            refactoringsAtRevision =
+                detectFirstParentRefactorings(project, gitService, repository, reader, currentCommit, handler);
+        }
+        if (mergeCommitStrategy == MergeCommitStrategy.EACH_PARENT && !refactoringsAtRevision.isEmpty()) {
+            List<String> descriptions = new ArrayList<>(refactoringsAtRevision.size());
+            for (Refactoring refactoring : refactoringsAtRevision) {
+                descriptions.add(refactoring.toString());
+            }
+            reportedRefactorings.put(currentCommit.copy(), descriptions);
+        }
+        handler.handle(commitId, refactoringsAtRevision);
+        return refactoringsAtRevision;
+    }
+
+    private List<Refactoring> detectFirstParentRefactorings(@Nullable Project project,
+                                                            GitService gitService,
+                                                            Repository repository,
+                                                            RepositoryReader reader,
+                                                            RevCommit currentCommit,
+                                                            RefactoringHandler handler) throws Exception {
+        List<Refactoring> refactoringsAtRevision;
         List<String> filePathsBefore = new ArrayList<>();
         List<String> filePathsCurrent = new ArrayList<>();
         Map<String, String> renamedFilesHint = new HashMap<>();
-        gitService.fileTreeDiff(repository, currentCommit, filePathsBefore, filePathsCurrent, renamedFilesHint);
+        gitService.fileTreeDiff(repository, reader.getObjectReader(), currentCommit, filePathsBefore, filePathsCurrent,
+            renamedFilesHint);
 
-        Set<String> repositoryDirectoriesBefore = new LinkedHashSet<>();
-        Set<String> repositoryDirectoriesCurrent = new LinkedHashSet<>();
-        Map<String, String> fileContentsBefore = new LinkedHashMap<>();
-        Map<String, String> fileContentsCurrent = new LinkedHashMap<>();
-        try (RevWalk walk = new RevWalk(repository)) {
-            // If no kt files changed, there is no refactoring. Also, if there are
-            // only ADD's or only REMOVE's there is no refactoring
-            if (!filePathsBefore.isEmpty() && !filePathsCurrent.isEmpty() && currentCommit.getParentCount() > 0) {
-                RevCommit parentCommit = currentCommit.getParent(0);
-                populateFileContents(repository, parentCommit, filePathsBefore, fileContentsBefore,
-                    repositoryDirectoriesBefore);
-                UMLModel parentUMLModel = createModelInKotlin(project, fileContentsBefore, repositoryDirectoriesBefore);
-
-                populateFileContents(repository, currentCommit, filePathsCurrent, fileContentsCurrent,
-                    repositoryDirectoriesCurrent);
-                UMLModel currentUMLModel = createModelInKotlin(project, fileContentsCurrent, repositoryDirectoriesCurrent);
-
-                refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
-                refactoringsAtRevision = filter(refactoringsAtRevision);
-            } else {
-                refactoringsAtRevision = Collections.emptyList();
+        // If no kt files changed, there is no refactoring. Also, if there are
+        // only ADD's or only REMOVE's there is no refactoring
+        if (!filePathsBefore.isEmpty() && !filePathsCurrent.isEmpty() && currentCommit.getParentCount() > 0) {
+            RevCommit parentCommit = currentCommit.getParent(0);
+            long sourceSize = reader.sizeOfFiles(parentCommit.getTree(), filePathsBefore) +
+                reader.sizeOfFiles(currentCommit.getTree(), filePathsCurrent);
+            boolean declarationsOnly = sourceSize * MODEL_BYTES_PER_SOURCE_BYTE > modelMemoryBudget;
+            if (declarationsOnly) {
+                handler.handleDeclarationsOnly(currentCommit.getId().getName(), sourceSize);
             }
-            handler.handle(commitId, refactoringsAtRevision);
+            UMLModel parentUMLModel = createModelInKotlin(project, reader, parentCommit.getTree(),
+                filePathsBefore, getRepositoryDirectories(reader, parentCommit, currentCommit), declarationsOnly);
+            UMLModel currentUMLModel = createModelInKotlin(project, reader, currentCommit.getTree(),
+                filePathsCurrent, getRepositoryDirectories(reader, currentCommit, parentCommit), declarationsOnly);
 
-            walk.dispose();
+            refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
+            refactoringsAtRevision = filter(refactoringsAtRevision);
+        } else {
+            refactoringsAtRevision = Collections.emptyList();
         }
         return refactoringsAtRevision;
     }
 
+    /**
+     * Compares a merge commit with each of its parents. The model of the merge commit is built once, from the files
+     * changed with respect to any parent. Each parent model additionally contains the files of the merge commit
+     * that are unchanged with respect to that parent, so that their classes are matched as unchanged.
+     * Refactorings found with several parents are reported once, and the ones already reported for the commits
+     * which the comparison with a parent brings in again, i.e. the commits of the other parents which are not
+     * reachable from that parent, are not reported.
+     * <p>
+     * The models are built from the declarations only if the model of the merge commit and the largest parent
+     * model, the ones alive together during a diff, are estimated to exceed the memory budget.
+     */
+    private List<Refactoring> detectMergeRefactorings(@Nullable Project project,
+                                                      GitService gitService,
+                                                      Repository repository,
+                                                      RepositoryReader reader,
+                                                      RevCommit mergeCommit,
+                                                      RefactoringHandler handler) throws Exception {
+        int parentCount = mergeCommit.getParentCount();
+        List<List<String>> filePathsBeforePerParent = new ArrayList<>();
+        List<List<String>> filePathsCurrentPerParent = new ArrayList<>();
+        List<Map<String, String>> renamedFilesHintPerParent = new ArrayList<>();
+        Set<String> allFilePathsCurrent = new LinkedHashSet<>();
+        for (int i = 0; i < parentCount; i++) {
+            List<String> filePathsBefore = new ArrayList<>();
+            List<String> filePathsCurrent = new ArrayList<>();
+            Map<String, String> renamedFilesHint = new HashMap<>();
+            gitService.fileTreeDiff(repository, reader.getObjectReader(), mergeCommit.getParent(i), mergeCommit,
+                filePathsBefore, filePathsCurrent, renamedFilesHint);
+            filePathsBeforePerParent.add(filePathsBefore);
+            filePathsCurrentPerParent.add(filePathsCurrent);
+            renamedFilesHintPerParent.add(renamedFilesHint);
+            allFilePathsCurrent.addAll(filePathsCurrent);
+        }
+
+        List<List<String>> parentFilePathsPerParent = new ArrayList<>();
+        boolean anyParentAnalyzed = false;
+        long maxParentSourceSize = 0;
+        for (int i = 0; i < parentCount; i++) {
+            List<String> filePathsBefore = filePathsBeforePerParent.get(i);
+            List<String> filePathsCurrent = filePathsCurrentPerParent.get(i);
+            if (filePathsBefore.isEmpty() || filePathsCurrent.isEmpty()) {
+                parentFilePathsPerParent.add(null);
+                continue;
+            }
+            Set<String> parentFilePaths = new LinkedHashSet<>(filePathsBefore);
+            Set<String> changedFilePaths = new HashSet<>(filePathsCurrent);
+            for (String filePath : allFilePathsCurrent) {
+                if (!changedFilePaths.contains(filePath)) {
+                    parentFilePaths.add(filePath);
+                }
+            }
+            List<String> parentFilePathsList = new ArrayList<>(parentFilePaths);
+            parentFilePathsPerParent.add(parentFilePathsList);
+            anyParentAnalyzed = true;
+            maxParentSourceSize = Math.max(maxParentSourceSize,
+                reader.sizeOfFiles(mergeCommit.getParent(i).getTree(), parentFilePathsList));
+        }
+        if (!anyParentAnalyzed) {
+            return Collections.emptyList();
+        }
+        List<String> filePathsCurrent = new ArrayList<>(allFilePathsCurrent);
+        long sourceSize = reader.sizeOfFiles(mergeCommit.getTree(), filePathsCurrent) + maxParentSourceSize;
+        boolean declarationsOnly = sourceSize * MODEL_BYTES_PER_SOURCE_BYTE > modelMemoryBudget;
+        if (declarationsOnly) {
+            handler.handleDeclarationsOnly(mergeCommit.getId().getName(), sourceSize);
+        }
+
+        UMLModel currentUMLModel = null;
+        Set<String> descriptionsAtRevision = new HashSet<>();
+        List<Refactoring> refactoringsAtRevision = new ArrayList<>();
+        for (int i = 0; i < parentCount; i++) {
+            List<String> parentFilePaths = parentFilePathsPerParent.get(i);
+            if (parentFilePaths == null) {
+                continue;
+            }
+            RevCommit parentCommit = mergeCommit.getParent(i);
+            if (currentUMLModel == null) {
+                currentUMLModel = createModelInKotlin(project, reader, mergeCommit.getTree(), filePathsCurrent,
+                    getRepositoryDirectories(reader, mergeCommit, parentCommit), declarationsOnly);
+            }
+            UMLModel parentUMLModel = createModelInKotlin(project, reader, parentCommit.getTree(), parentFilePaths,
+                getRepositoryDirectories(reader, parentCommit, mergeCommit), declarationsOnly);
+
+            Set<String> reportedInBranches = getReportedRefactorings(repository, mergeCommit, i);
+            for (Refactoring refactoring : parentUMLModel.diff(currentUMLModel, renamedFilesHintPerParent.get(i))
+                .getRefactorings()) {
+                String description = refactoring.toString();
+                if (!reportedInBranches.contains(description) && descriptionsAtRevision.add(description)) {
+                    refactoringsAtRevision.add(refactoring);
+                }
+            }
+        }
+        return filter(refactoringsAtRevision);
+    }
+
+    /**
+     * Returns the descriptions of the refactorings reported for the commits reachable from the other parents of the
+     * merge commit but not from the given one.
+     */
+    private Set<String> getReportedRefactorings(Repository repository, RevCommit mergeCommit, int parentIndex)
+        throws Exception {
+        Set<String> descriptions = new HashSet<>();
+        if (reportedRefactorings.isEmpty()) {
+            return descriptions;
+        }
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            for (int i = 0; i < mergeCommit.getParentCount(); i++) {
+                RevCommit parent = walk.parseCommit(mergeCommit.getParent(i));
+                if (i == parentIndex) {
+                    walk.markUninteresting(parent);
+                } else {
+                    walk.markStart(parent);
+                }
+            }
+            for (RevCommit commit : walk) {
+                List<String> reported = reportedRefactorings.get(commit);
+                if (reported != null) {
+                    descriptions.addAll(reported);
+                }
+            }
+        }
+        return descriptions;
+    }
+
     private void detect(GitService gitService,
                         Repository repository,
                         final RefactoringHandler handler,
@@ -76,22 +294,27 @@ public class GitHistoryKotlinRMiner {
         String projectName = projectFolder.getName();
 
         long time = System.currentTimeMillis();
-        while (i.hasNext()) {
-            RevCommit currentCommit = i.next();
-            try {
-                List<Refactoring> refactoringsAtRevision =
-                    detectRefactorings(null, gitService, repository, currentCommit, handler);
-                refactoringsCount += refactoringsAtRevision.size();
-
-            } catch (Exception e) {
-                handler.handleException(currentCommit.getId().getName(), e);
-                errorCommitsCount++;
-            }
+        try (RepositoryReader reader = new RepositoryReader(repository)) {
+            while (i.hasNext()) {
+                RevCommit currentCommit = i.next();
+                if (skipCommit(handler, reader.getObjectReader(), currentCommit)) {
+                    continue;
+                }
+                try {
+                    List<Refactoring> refactoringsAtRevision =
+                        detectRefactorings(null, gitService, repository, reader, currentCommit, handler);
+                    refactoringsCount += refactoringsAtRevision.size();
+
+                } catch (Exception e) {
+                    handler.handleException(currentCommit.getId().getName(), e);
+                    errorCommitsCount++;
+                }
 
-            commitsCount++;
-            long time2 = System.currentTimeMillis();
-            if ((time2 - time) > 20000) {
-                time = time2;
+                commitsCount++;
+                long time2 = System.currentTimeMillis();
+                if ((time2 - time) > 20000) {
+                    time = time2;
+                }
             }
         }
 
@@ -104,12 +327,13 @@ public class GitHistoryKotlinRMiner {
         String cloneURL = repository.getConfig().getString("remote", "origin", "url");
         File metadataFolder = repository.getDirectory();
         File projectFolder = metadataFolder.getParentFile();
-        GitService gitService = new GitService();
         RevWalk walk = new RevWalk(repository);
         try {
             RevCommit commit = walk.parseCommit(repository.resolve(commitId));
-            if (commit.getParentCount() > 0) {
-                walk.parseCommit(commit.getParent(0));
+            if (commit.getParentCount() > 0 && !skipCommit(handler, walk.getObjectReader(), commit)) {
+                for (RevCommit parent : commit.getParents()) {
+                    walk.parseCommit(parent);
+                }
                 this.detectRefactorings(project, gitService, repository, commit, handler);
             }
         } catch (Exception e) {
@@ -125,7 +349,6 @@ public class GitHistoryKotlinRMiner {
     }
 
     public void detectAll(Repository repository, String branch, final RefactoringHandler handler) throws Exception {
-        GitService gitService = new GitService();
         RevWalk walk = gitService.createAllRevsWalk(repository, branch);
         try {
             detect(gitService, repository, handler, walk.iterator());
@@ -136,9 +359,31 @@ public class GitHistoryKotlinRMiner {
 
     public void detectBetweenCommits(Repository repository, String startCommitId, String endCommitId,
                                      RefactoringHandler handler) throws Exception {
-        GitService gitService = new GitService();
-        Iterable<RevCommit> walk = gitService.createRevsWalkBetweenCommits(repository, startCommitId, endCommitId);
-        detect(gitService, repository, handler, walk.iterator());
+        detectBetweenCommits(repository, Collections.singletonList(startCommitId), endCommitId, handler);
+    }
+
+    /**
+     * Detects the refactorings of the commits reachable from the end commit but from none of the start commits.
+     */
+    public void detectBetweenCommits(Repository repository, Collection<String> startCommitIds, String endCommitId,
+                                     RefactoringHandler handler) throws Exception {
+        boolean includeMergeCommits = mergeCommitStrategy != null && mergeCommitStrategy != MergeCommitStrategy.SKIP;
+        try (RevWalk walk = gitService.createRevsWalkBetweenCommits(repository, startCommitIds, endCommitId,
+            includeMergeCommits)) {
+            detect(gitService, repository, handler, walk.iterator());
+        }
+    }
+
+    /**
+     * Consults the handler and the merge commit strategy before any tree of the commit is read.
+     */
+    private boolean skipCommit(RefactoringHandler handler, ObjectReader objectReader, RevCommit commit) {
+        return handler.skipCommit(commit.getId().getName()) || skipMergeCommit(commit) ||
+            handler.skipCommit(new CommitInfo(commit, objectReader));
+    }
+
+    private boolean skipMergeCommit(RevCommit commit) {
+        return commit.getParentCount() > 1 && mergeCommitStrategy == MergeCommitStrategy.SKIP;
     }
 
     protected List<Refactoring> filter(List<Refactoring> refactoringsAtRevision) {
@@ -151,43 +396,85 @@ public class GitHistoryKotlinRMiner {
         return new ArrayList<>(refactoringsAtRevision);
     }
 
-    protected UMLModel createModelInKotlin(@Nullable Project project, Map<String, String> fileContents, Set<String> repositoryDirectories) throws
-        Exception {
+    /**
+     * Builds the model of the given files of the tree. The files are read and parsed in batches, and the contents
+     * of each file are released once it is parsed, so that the contents of all the files are never in memory at
+     * once.
+     *
+     * @param declarationsOnly whether the function bodies are left out of the model, see
+     *                         {@link UMLModelPsiReaderCli#setDeclarationsOnly(boolean)}
+     */
+    protected UMLModel createModelInKotlin(@Nullable Project project,
+                                           RepositoryReader reader,
+                                           RevTree tree,
+                                           List<String> filePaths,
+                                           Set<String> repositoryDirectories,
+                                           boolean declarationsOnly) throws Exception {
         UMLModelPsiReaderCli psiReader = new UMLModelPsiReaderCli(repositoryDirectories);
-        psiReader.parseFiles(fileContents);
+        psiReader.setDeclarationsOnly(declarationsOnly);
+        for (int i = 0; i < filePaths.size(); i += FILES_PER_BATCH) {
+            List<String> batch = filePaths.subList(i, Math.min(i + FILES_PER_BATCH, filePaths.size()));
+            psiReader.parseFiles(reader.readFiles(tree, batch));
+        }
         return psiReader.getUmlModel();
     }
 
-    private void populateFileContents(Repository repository,
-                                      RevCommit commit,
-                                      List<String> filePaths,
-                                      Map<String, String> fileContents,
-                                      Set<String> repositoryDirectories) throws Exception {
-        RevTree parentTree = commit.getTree();
-        try (TreeWalk treeWalk = new TreeWalk(repository)) {
-            treeWalk.addTree(parentTree);
+    /**
+     * Returns the repository directories of the commit.
+     *
+     * @param relatedCommit a commit whose directories may be already known, e.g. the parent or a child commit
+     */
+    private Set<String> getRepositoryDirectories(RepositoryReader reader,
+                                                 RevCommit commit,
+                                                 RevCommit relatedCommit) throws Exception {
+        return getRepositoryDirectories(reader, commit.getTree(), relatedCommit.getTree());
+    }
+
+    /**
+     * Returns the directories containing Kotlin files in the given tree, including all their parent directories.
+     * If the directories of the related tree are cached, only the Kotlin files differing between the trees are
+     * visited.
+     */
+    private Set<String> getRepositoryDirectories(RepositoryReader reader,
+                                                 RevTree tree,
+                                                 RevTree relatedTree) throws Exception {
+        DirectoryTrie repositoryDirectories = repositoryDirectoriesCache.get(tree.getId());
+        if (repositoryDirectories != null) {
+            return repositoryDirectories;
+        }
+        DirectoryTrie relatedRepositoryDirectories = repositoryDirectoriesCache.get(relatedTree.getId());
+        try (TreeWalk treeWalk = new TreeWalk(reader.getObjectReader())) {
             treeWalk.setRecursive(true);
-            while (treeWalk.next()) {
-                String pathString = treeWalk.getPathString();
-                if (filePaths.contains(pathString)) {
-                    ObjectId objectId = treeWalk.getObjectId(0);
-                    ObjectLoader loader = repository.open(objectId);
-                    StringWriter writer = new StringWriter();
-                    IOUtils.copy(loader.openStream(), writer);
-                    fileContents.put(pathString, writer.toString());
-                }
-                if (pathString.endsWith(".kt") && pathString.contains("/")) {
-                    String directory = pathString.substring(0, pathString.lastIndexOf("/"));
-                    repositoryDirectories.add(directory);
-                    //include sub-directories
-                    String subDirectory = directory;
-                    while (subDirectory.contains("/")) {
-                        subDirectory = subDirectory.substring(0, subDirectory.lastIndexOf("/"));
-                        repositoryDirectories.add(subDirectory);
+            if (relatedRepositoryDirectories != null) {
+                repositoryDirectories = relatedRepositoryDirectories.copy();
+                treeWalk.addTree(relatedTree);
+                treeWalk.addTree(tree);
+                treeWalk.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".kt"), TreeFilter.ANY_DIFF));
+                while (treeWalk.next()) {
+                    boolean inRelatedTree = isFile(treeWalk, 0);
+                    boolean inTree = isFile(treeWalk, 1);
+                    if (inRelatedTree && !inTree) {
+                        repositoryDirectories.removeFile(treeWalk.getPathString());
+                    } else if (!inRelatedTree && inTree) {
+                        repositoryDirectories.addFile(treeWalk.getPathString());
                     }
                 }
+            } else {
+                repositoryDirectories = new DirectoryTrie();
+                treeWalk.addTree(tree);
+                treeWalk.setFilter(PathSuffixFilter.create(".kt"));
+                while (treeWalk.next()) {
+                    repositoryDirectories.addFile(treeWalk.getPathString());
+                }
             }
         }
+        repositoryDirectoriesCache.put(tree.getId().copy(), repositoryDirectories);
+        return repositoryDirectories;
+    }
+
+    private static boolean isFile(TreeWalk treeWalk, int treeIndex) {
+        int rawMode = treeWalk.getRawMode(treeIndex);
+        return rawMode != 0 && !FileMode.TREE.equals(rawMode);
     }
 
     public static String extractCommitURL(String cloneURL, String commitId) {
@@ -206,4 +493,21 @@ public class GitHistoryKotlinRMiner {
         return cloneURL.substring(0, indexOfDotGit) + commitResource + commitId;
     }
 
+    /**
+     * How commits with more than one parent are analyzed.
+     */
+    public enum MergeCommitStrategy {
+        /**
+         * Merge commits are not analyzed.
+         */
+        SKIP,
+        /**
+         * Merge commits are compared with their first parent, i.e. the branch they were merged into.
+         */
+        FIRST_PARENT,
+        /**
+         * Merge commits are compared with each of their parents.
+         */
+        EACH_PARENT
+    }
 }
@@ -4,24 +4,93 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.*;
 
 public class GitService {
     private static final String REMOTE_REFS_PREFIX = "refs/remotes/origin/";
+    private static final RevFilter SINGLE_PARENT = new RevFilter() {
+        @Override
+        public boolean include(RevWalk walker, RevCommit commit) {
+            return commit.getParentCount() == 1;
+        }
+
+        @Override
+        public RevFilter clone() {
+            return this;
+        }
+
+        @Override
+        public boolean requiresCommitBody() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "SINGLE_PARENT";
+        }
+    };
+    private static final RevFilter WITH_PARENTS = new RevFilter() {
+        @Override
+        public boolean include(RevWalk walker, RevCommit commit) {
+            return commit.getParentCount() > 0;
+        }
+
+        @Override
+        public RevFilter clone() {
+            return this;
+        }
+
+        @Override
+        public boolean requiresCommitBody() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "WITH_PARENTS";
+        }
+    };
+    private int renameScore = Integer.getInteger("kotlinrminer.renameScore", 80);
+    private int renameLimit = Integer.getInteger("kotlinrminer.renameLimit", -1);
+    private boolean exactRenamesOnly = Boolean.getBoolean("kotlinrminer.exactRenamesOnly");
+
+    /**
+     * Sets the minimum similarity score (0-100) of a renamed Kotlin file, 80 by default.
+     */
+    public void setRenameScore(int renameScore) {
+        this.renameScore = renameScore;
+    }
+
+    /**
+     * Sets the maximum number of added/deleted Kotlin files of a commit compared by the content rename detection.
+     * A negative limit keeps the {@code diff.renameLimit} of the repository.
+     */
+    public void setRenameLimit(int renameLimit) {
+        this.renameLimit = renameLimit;
+    }
+
+    /**
+     * Restricts the rename detection to files moved without changes, matched by their blob ids. Much faster than the
+     * content similarity detection for commits with many added and deleted files.
+     */
+    public void setExactRenamesOnly(boolean exactRenamesOnly) {
+        this.exactRenamesOnly = exactRenamesOnly;
+    }
 
     public Repository openRepository(String repositoryPath) throws Exception {
         File folder = new File(repositoryPath);
@@ -58,20 +127,49 @@ public class GitService {
         return walk;
     }
 
-    public Iterable<RevCommit> createRevsWalkBetweenCommits(Repository repository,
-                                                            String startCommitId,
-                                                            String endCommitId)
+    public RevWalk createRevsWalkBetweenCommits(Repository repository,
+                                                String startCommitId,
+                                                String endCommitId)
+        throws Exception {
+        return createRevsWalkBetweenCommits(repository, startCommitId, endCommitId, false);
+    }
+
+    /**
+     * Returns a walk over the commits reachable from {@code endCommitId} but not from {@code startCommitId},
+     * parents first. The commits are produced lazily and their message buffers are not retained, so the walk
+     * should be closed by the caller.
+     *
+     * @param includeMergeCommits whether commits with several parents are walked as well
+     */
+    public RevWalk createRevsWalkBetweenCommits(Repository repository,
+                                                String startCommitId,
+                                                String endCommitId,
+                                                boolean includeMergeCommits)
+        throws Exception {
+        return createRevsWalkBetweenCommits(repository, Collections.singletonList(startCommitId), endCommitId,
+            includeMergeCommits);
+    }
+
+    /**
+     * Same as {@link #createRevsWalkBetweenCommits(Repository, String, String, boolean)}, excluding the commits
+     * reachable from any of the given start commits.
+     */
+    public RevWalk createRevsWalkBetweenCommits(Repository repository,
+                                                Collection<String> startCommitIds,
+                                                String endCommitId,
+                                                boolean includeMergeCommits)
         throws Exception {
-        ObjectId from = repository.resolve(startCommitId);
         ObjectId to = repository.resolve(endCommitId);
-        try (Git git = new Git(repository)) {
-            List<RevCommit> revCommits = StreamSupport.stream(git.log().addRange(from, to).call()
-                    .spliterator(), false)
-                .filter(r -> r.getParentCount() == 1)
-                .collect(Collectors.toList());
-            Collections.reverse(revCommits);
-            return revCommits;
+        RevWalk walk = new RevWalk(repository);
+        walk.setRetainBody(false);
+        walk.sort(RevSort.TOPO);
+        walk.sort(RevSort.REVERSE, true);
+        walk.setRevFilter(includeMergeCommits ? WITH_PARENTS : SINGLE_PARENT);
+        walk.markStart(walk.parseCommit(to));
+        for (String startCommitId : startCommitIds) {
+            walk.markUninteresting(walk.parseCommit(repository.resolve(startCommitId)));
         }
+        return walk;
     }
 
     public void fileTreeDiff(Repository repository,
@@ -79,36 +177,76 @@ public class GitService {
                              List<String> filesBefore,
                              List<String> filesCurrent,
                              Map<String, String> renamedFilesHint) throws Exception {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            fileTreeDiff(repository, reader, currentCommit, filesBefore, filesCurrent, renamedFilesHint);
+        }
+    }
+
+    /**
+     * Same as {@link #fileTreeDiff(Repository, RevCommit, List, List, Map)}, reading the trees and the blobs
+     * compared by the rename detection through the given reader.
+     */
+    public void fileTreeDiff(Repository repository,
+                             ObjectReader reader,
+                             RevCommit currentCommit,
+                             List<String> filesBefore,
+                             List<String> filesCurrent,
+                             Map<String, String> renamedFilesHint) throws Exception {
         if (currentCommit.getParentCount() > 0) {
-            ObjectId oldTree = currentCommit.getParent(0).getTree();
-            ObjectId newTree = currentCommit.getTree();
-            final TreeWalk tw = new TreeWalk(repository);
-            tw.setRecursive(true);
-            tw.addTree(oldTree);
-            tw.addTree(newTree);
+            fileTreeDiff(repository, reader, currentCommit.getParent(0), currentCommit, filesBefore, filesCurrent,
+                renamedFilesHint);
+        }
+    }
+
+    /**
+     * Computes the Kotlin files changed between the given parent and the current commit.
+     */
+    public void fileTreeDiff(Repository repository,
+                             ObjectReader reader,
+                             RevCommit parentCommit,
+                             RevCommit currentCommit,
+                             List<String> filesBefore,
+                             List<String> filesCurrent,
+                             Map<String, String> renamedFilesHint) throws Exception {
+        ObjectId oldTree = parentCommit.getTree();
+        ObjectId newTree = currentCommit.getTree();
+        final TreeWalk tw = new TreeWalk(reader);
+        tw.setRecursive(true);
+        tw.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".kt"), TreeFilter.ANY_DIFF));
+        tw.addTree(oldTree);
+        tw.addTree(newTree);
 
+        List<DiffEntry> diffs;
+        if (exactRenamesOnly) {
+            diffs = DiffEntry.scan(tw);
+            addExactRenames(diffs, renamedFilesHint);
+        } else {
             final RenameDetector rd = new RenameDetector(repository);
-            rd.setRenameScore(80);
+            rd.setRenameScore(renameScore);
+            if (renameLimit >= 0) {
+                rd.setRenameLimit(renameLimit);
+            }
             rd.addAll(DiffEntry.scan(tw));
+            diffs = rd.compute(reader, null);
+        }
 
-            for (DiffEntry diff : rd.compute(tw.getObjectReader(), null)) {
-                DiffEntry.ChangeType changeType = diff.getChangeType();
-                String oldPath = diff.getOldPath();
-                String newPath = diff.getNewPath();
-                if (changeType != DiffEntry.ChangeType.ADD) {
-                    if (isKotlinFile(oldPath)) {
-                        filesBefore.add(oldPath);
-                    }
+        for (DiffEntry diff : diffs) {
+            DiffEntry.ChangeType changeType = diff.getChangeType();
+            String oldPath = diff.getOldPath();
+            String newPath = diff.getNewPath();
+            if (changeType != DiffEntry.ChangeType.ADD) {
+                if (isKotlinFile(oldPath)) {
+                    filesBefore.add(oldPath);
                 }
-                if (changeType != DiffEntry.ChangeType.DELETE) {
-                    if (isKotlinFile(newPath)) {
-                        filesCurrent.add(newPath);
-                    }
+            }
+            if (changeType != DiffEntry.ChangeType.DELETE) {
+                if (isKotlinFile(newPath)) {
+                    filesCurrent.add(newPath);
                 }
-                if (changeType == DiffEntry.ChangeType.RENAME && diff.getScore() >= rd.getRenameScore()) {
-                    if (isKotlinFile(oldPath) && isKotlinFile(newPath)) {
-                        renamedFilesHint.put(oldPath, newPath);
-                    }
+            }
+            if (changeType == DiffEntry.ChangeType.RENAME && diff.getScore() >= renameScore) {
+                if (isKotlinFile(oldPath) && isKotlinFile(newPath)) {
+                    renamedFilesHint.put(oldPath, newPath);
                 }
             }
         }
@@ -136,6 +274,30 @@ public class GitService {
         return repository;
     }
 
+    /**
+     * Pairs the deleted and added files having the same blob id, in the order of the diff.
+     */
+    private void addExactRenames(List<DiffEntry> diffs, Map<String, String> renamedFilesHint) {
+        Map<ObjectId, Deque<String>> deletedPaths = new HashMap<>();
+        for (DiffEntry diff : diffs) {
+            if (diff.getChangeType() == DiffEntry.ChangeType.DELETE) {
+                deletedPaths.computeIfAbsent(diff.getOldId().toObjectId(), k -> new ArrayDeque<>())
+                    .add(diff.getOldPath());
+            }
+        }
+        if (deletedPaths.isEmpty()) {
+            return;
+        }
+        for (DiffEntry diff : diffs) {
+            if (diff.getChangeType() == DiffEntry.ChangeType.ADD) {
+                Deque<String> paths = deletedPaths.get(diff.getNewId().toObjectId());
+                if (paths != null && !paths.isEmpty()) {
+                    renamedFilesHint.put(paths.poll(), diff.getNewPath());
+                }
+            }
+        }
+    }
+
     private boolean isKotlinFile(String path) {
         return path.endsWith(".kt");
     }
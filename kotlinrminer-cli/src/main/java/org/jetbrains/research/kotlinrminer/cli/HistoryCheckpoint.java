@@ -0,0 +1,192 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Records the progress of a history walk in a directory, so that an interrupted walk can be resumed.
+ * <p>
+ * The JSON objects of the analyzed commits are appended to an output file. Periodically, the output is flushed to
+ * the disk and the commits written since the previous checkpoint are appended to a checkpoint log, followed by the
+ * length of the output at that point. The commits which could not be analyzed are recorded in the checkpoint log
+ * as well, without output. When resuming, the commits of the complete checkpoints are skipped and both files are
+ * truncated to the last complete checkpoint, dropping the commits written after it.
+ */
+public class HistoryCheckpoint implements Closeable {
+    private static final String OUTPUT_FILE = "refactorings.part";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LENGTH_PREFIX = "# ";
+    private static final String FAILED_PREFIX = "! ";
+    private static final int DEFAULT_COMMITS_PER_CHECKPOINT = 50;
+    private static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 60_000;
+    private final File outputFile;
+    private final Set<String> processedCommits = new HashSet<>();
+    private final Set<String> failedCommits = new LinkedHashSet<>();
+    /**
+     * The lines of the checkpoint log for the commits written since the previous checkpoint.
+     */
+    private final List<String> pendingCommits = new ArrayList<>();
+    private final FileOutputStream outputStream;
+    private final OutputStream output;
+    private final FileOutputStream checkpointLog;
+    private final int commitsPerCheckpoint;
+    private final long checkpointIntervalMillis;
+    private long outputLength;
+    private long lastCheckpointTime;
+
+    public HistoryCheckpoint(File directory, boolean resume) throws IOException {
+        this(directory, resume, DEFAULT_COMMITS_PER_CHECKPOINT, DEFAULT_CHECKPOINT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param resume if false, the progress recorded in the directory is discarded
+     */
+    public HistoryCheckpoint(File directory,
+                             boolean resume,
+                             int commitsPerCheckpoint,
+                             long checkpointIntervalMillis) throws IOException {
+        this.commitsPerCheckpoint = commitsPerCheckpoint;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+        Files.createDirectories(directory.toPath());
+        this.outputFile = new File(directory, OUTPUT_FILE);
+        File checkpointFile = new File(directory, CHECKPOINT_FILE);
+        long checkpointLength = resume && checkpointFile.exists() ? loadCheckpoints(checkpointFile) : 0;
+        truncate(checkpointFile, checkpointLength);
+        truncate(outputFile, outputLength);
+        this.outputStream = new FileOutputStream(outputFile, true);
+        this.output = new BufferedOutputStream(outputStream);
+        this.checkpointLog = new FileOutputStream(checkpointFile, true);
+        this.lastCheckpointTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns true if the commit was recorded by a checkpoint of a previous walk.
+     */
+    public boolean isProcessed(String commitId) {
+        return processedCommits.contains(commitId);
+    }
+
+    public int getProcessedCommitsCount() {
+        return processedCommits.size();
+    }
+
+    /**
+     * Returns the commits which could not be analyzed, recorded by the checkpoints of this walk and previous walks.
+     */
+    public Set<String> getFailedCommits() {
+        return Collections.unmodifiableSet(failedCommits);
+    }
+
+    /**
+     * Appends the JSON object of an analyzed commit to the output, and writes a checkpoint if one is due.
+     */
+    public void write(String commitId, CharSequence commitJSON) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (outputLength > 0) {
+            sb.append(",").append("\n");
+        }
+        sb.append(commitJSON);
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        output.write(bytes);
+        outputLength += bytes.length;
+        pendingCommits.add(commitId);
+        checkpointIfDue();
+    }
+
+    /**
+     * Records a commit which could not be analyzed, so that it is not analyzed again when resuming, and writes a
+     * checkpoint if one is due.
+     */
+    public void writeFailed(String commitId) throws IOException {
+        pendingCommits.add(FAILED_PREFIX + commitId);
+        checkpointIfDue();
+    }
+
+    private void checkpointIfDue() throws IOException {
+        long time = System.currentTimeMillis();
+        if (pendingCommits.size() >= commitsPerCheckpoint || time - lastCheckpointTime >= checkpointIntervalMillis) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Flushes the output to the disk and records the commits written since the previous checkpoint.
+     */
+    public void checkpoint() throws IOException {
+        output.flush();
+        outputStream.getFD().sync();
+        StringBuilder sb = new StringBuilder();
+        for (String line : pendingCommits) {
+            sb.append(line).append("\n");
+        }
+        sb.append(LENGTH_PREFIX).append(outputLength).append("\n");
+        checkpointLog.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        checkpointLog.getFD().sync();
+        pendingCommits.forEach(this::addProcessedCommit);
+        pendingCommits.clear();
+        lastCheckpointTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Copies the comma-separated JSON objects of all commits written so far, including the previous walks.
+     */
+    public void copyOutput(OutputStream out) throws IOException {
+        output.flush();
+        Files.copy(outputFile.toPath(), out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            checkpoint();
+        } finally {
+            output.close();
+            checkpointLog.close();
+        }
+    }
+
+    /**
+     * Loads the commits of the complete checkpoints and the length of the output at the last one.
+     *
+     * @return the length of the checkpoint log up to the end of the last complete checkpoint
+     */
+    private long loadCheckpoints(File checkpointFile) throws IOException {
+        String log = new String(Files.readAllBytes(checkpointFile.toPath()), StandardCharsets.UTF_8);
+        List<String> commits = new ArrayList<>();
+        long checkpointLength = 0;
+        int start = 0;
+        int end;
+        //a line without a line break was interrupted while being written
+        while ((end = log.indexOf('\n', start)) >= 0) {
+            String line = log.substring(start, end);
+            start = end + 1;
+            if (line.startsWith(LENGTH_PREFIX)) {
+                outputLength = Long.parseLong(line.substring(LENGTH_PREFIX.length()));
+                commits.forEach(this::addProcessedCommit);
+                commits.clear();
+                checkpointLength = start;
+            } else if (!line.isEmpty()) {
+                commits.add(line);
+            }
+        }
+        return checkpointLength;
+    }
+
+    private void addProcessedCommit(String line) {
+        if (line.startsWith(FAILED_PREFIX)) {
+            String commitId = line.substring(FAILED_PREFIX.length());
+            failedCommits.add(commitId);
+            processedCommits.add(commitId);
+        } else {
+            processedCommits.add(line);
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length);
+        }
+    }
+}
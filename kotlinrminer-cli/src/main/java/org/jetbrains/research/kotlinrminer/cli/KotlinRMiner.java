@@ -3,11 +3,29 @@ package org.jetbrains.research.kotlinrminer.cli;
 import org.eclipse.jgit.lib.Repository;
 import org.jetbrains.research.kotlinrminer.cli.util.JsonUtil;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 
 public class KotlinRMiner {
+
     public static void main(String[] args) throws Exception {
+        File checkpointDirectory = null;
+        boolean resume = false;
+        List<String> remainingArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("--checkpoint") && i + 1 < args.length) {
+                checkpointDirectory = new File(args[++i]);
+            } else if (args[i].equalsIgnoreCase("--resume")) {
+                resume = true;
+            } else {
+                remainingArgs.add(args[i]);
+            }
+        }
+        args = remainingArgs.toArray(new String[0]);
         if (args.length < 1) {
             System.out.println("Please, specify the arguments\n");
             printUsage();
@@ -21,12 +39,28 @@ public class KotlinRMiner {
             return;
         }
 
+        if (resume && checkpointDirectory == null) {
+            System.out.println("The '--resume' option requires a '--checkpoint <dir>' option.\n");
+            return;
+        }
         if (option.equalsIgnoreCase("-all")) {
-            detectAll(args);
+            detectAll(args, checkpointDirectory, resume);
         } else if (option.equalsIgnoreCase("-c")) {
             detectAtCommit(args);
         } else if (option.equalsIgnoreCase("-bc")) {
-            detectBetweenCommits(args);
+            detectBetweenCommits(args, checkpointDirectory, resume);
+        } else if (option.equalsIgnoreCase("-sbc")) {
+            detectBetweenCommitsInShards(args);
+        } else if (option.equalsIgnoreCase("-daemon")) {
+            try (KotlinRMinerDaemon daemon = new KotlinRMinerDaemon()) {
+                if (args.length == 2) {
+                    daemon.listen(Integer.parseInt(args[1]));
+                } else {
+                    daemon.serve(System.in, System.out);
+                }
+            }
+        } else if (option.equalsIgnoreCase("-shard-worker")) {
+            runShardWorker(args);
         } else {
             System.out.println("Incorrect command. Please, use '-h' option for help.\n");
         }
@@ -45,9 +79,16 @@ public class KotlinRMiner {
             StringBuilder sb = new StringBuilder();
             JsonUtil.startJSON(sb);
             detector.detectAtCommit(repo, commitId, new RefactoringHandler() {
+                private String declarationsOnlyCommitId;
+
+                @Override
+                public void handleDeclarationsOnly(String commitId, long sourceSize) {
+                    declarationsOnlyCommitId = commitId;
+                }
+
                 @Override
                 public void handle(String commitId, List<Refactoring> refactorings) {
-                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings);
+                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings, commitId.equals(declarationsOnlyCommitId));
                 }
 
                 @Override
@@ -64,7 +105,7 @@ public class KotlinRMiner {
     /**
      * Detects refactorings in all commits in the specified branch.
      */
-    private static void detectAll(String[] args) throws Exception {
+    private static void detectAll(String[] args, File checkpointDirectory, boolean resume) throws Exception {
         if (args.length > 3) {
             System.out.println("Incorrect arguments. Please, use '-h' option for help.\n");
         }
@@ -79,39 +120,18 @@ public class KotlinRMiner {
             GitHistoryKotlinRMiner detector = new GitHistoryKotlinRMiner();
             StringBuilder sb = new StringBuilder();
             JsonUtil.startJSON(sb);
-            detector.detectAll(repo, branch, new RefactoringHandler() {
-                private int commitCount = 0;
-
-                @Override
-                public void handle(String commitId, List<Refactoring> refactorings) {
-                    if (commitCount > 0) {
-                        sb.append(",").append("\n");
-                    }
-                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings);
-                    commitCount++;
-                }
-
-                @Override
-                public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-                    System.out.printf("Total count: [Commits: %d, Errors: %d, Refactorings: %d]%n",
-                        commitsCount, errorCommitsCount, refactoringsCount);
-                }
-
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
-                }
-            });
-            JsonUtil.endJSON(sb);
-            System.out.println(sb);
+            try (HistoryCheckpoint checkpoint = createCheckpoint(checkpointDirectory, resume)) {
+                detector.detectAll(repo, branch, createHistoryHandler(gitURL, sb, checkpoint));
+                printHistoryResult(sb, checkpoint);
+            }
         }
     }
 
     /**
      * Detects refactorings in all commits in the range between two specified commits.
      */
-    private static void detectBetweenCommits(String[] args) throws Exception {
+    private static void detectBetweenCommits(String[] args, File checkpointDirectory, boolean resume)
+        throws Exception {
         if (!(args.length == 3 || args.length == 4)) {
             System.out.println("Incorrect arguments. Please, use '-h' option for help.\n");
         }
@@ -124,32 +144,138 @@ public class KotlinRMiner {
             GitHistoryKotlinRMiner detector = new GitHistoryKotlinRMiner();
             StringBuilder sb = new StringBuilder();
             JsonUtil.startJSON(sb);
-            detector.detectBetweenCommits(repo, startCommit, endCommit, new RefactoringHandler() {
-                private int commitCount = 0;
+            try (HistoryCheckpoint checkpoint = createCheckpoint(checkpointDirectory, resume)) {
+                detector.detectBetweenCommits(repo, startCommit, endCommit,
+                    createHistoryHandler(gitURL, sb, checkpoint));
+                printHistoryResult(sb, checkpoint);
+            }
+        }
+    }
 
-                @Override
-                public void handle(String commitId, List<Refactoring> refactorings) {
-                    if (commitCount > 0) {
-                        sb.append(",").append("\n");
+    /**
+     * Creates the handler of a history walk, which collects the JSON objects of the commits in the builder or, if
+     * the progress is checkpointed, writes them to the checkpoint output and skips the already processed commits.
+     */
+    private static RefactoringHandler createHistoryHandler(String gitURL, StringBuilder sb,
+                                                           HistoryCheckpoint checkpoint) {
+        return new RefactoringHandler() {
+            private int commitCount = 0;
+            private String declarationsOnlyCommitId;
+
+            @Override
+            public boolean skipCommit(String commitId) {
+                return checkpoint != null && checkpoint.isProcessed(commitId);
+            }
+
+            @Override
+            public void handleDeclarationsOnly(String commitId, long sourceSize) {
+                declarationsOnlyCommitId = commitId;
+            }
+
+            @Override
+            public void handle(String commitId, List<Refactoring> refactorings) {
+                boolean declarationsOnly = commitId.equals(declarationsOnlyCommitId);
+                if (checkpoint != null) {
+                    StringBuilder commitJSON = new StringBuilder();
+                    JsonUtil.commitJSON(commitJSON, gitURL, commitId, refactorings, declarationsOnly);
+                    try {
+                        checkpoint.write(commitId, commitJSON);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
-                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings);
-                    commitCount++;
+                    return;
                 }
-
-                @Override
-                public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-                    System.out.printf("Total count: [Commits: %d, Errors: %d, Refactorings: %d]%n",
-                        commitsCount, errorCommitsCount, refactoringsCount);
+                if (commitCount > 0) {
+                    sb.append(",").append("\n");
                 }
+                JsonUtil.commitJSON(sb, gitURL, commitId, refactorings, declarationsOnly);
+                commitCount++;
+            }
 
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
+            @Override
+            public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+                System.out.printf("Total count: [Commits: %d, Errors: %d, Refactorings: %d]%n",
+                    commitsCount, errorCommitsCount, refactoringsCount);
+            }
+
+            @Override
+            public void handleException(String commit, Exception e) {
+                if (e instanceof UncheckedIOException) {
+                    throw (UncheckedIOException) e;
                 }
-            });
-            JsonUtil.endJSON(sb);
-            System.out.println(sb);
+                System.err.println("Error processing commit " + commit);
+                e.printStackTrace(System.err);
+                if (checkpoint != null) {
+                    try {
+                        checkpoint.writeFailed(commit);
+                    } catch (IOException ioException) {
+                        throw new UncheckedIOException(ioException);
+                    }
+                }
+            }
+        };
+    }
+
+    private static HistoryCheckpoint createCheckpoint(File checkpointDirectory, boolean resume) throws IOException {
+        if (checkpointDirectory == null) {
+            return null;
+        }
+        HistoryCheckpoint checkpoint = new HistoryCheckpoint(checkpointDirectory, resume);
+        if (resume) {
+            System.out.printf("Resuming after %d processed commits, %d of which failed%n",
+                checkpoint.getProcessedCommitsCount(), checkpoint.getFailedCommits().size());
+        }
+        return checkpoint;
+    }
+
+    private static void printHistoryResult(StringBuilder sb, HistoryCheckpoint checkpoint) throws IOException {
+        if (checkpoint != null) {
+            System.out.print(sb);
+            System.out.flush();
+            checkpoint.copyOutput(System.out);
+            sb.setLength(0);
+            sb.append("\n");
+        }
+        JsonUtil.endJSON(sb);
+        System.out.println(sb);
+    }
+
+    /**
+     * Detects refactorings in the range between two specified commits, split into shards mined by worker processes.
+     * Running the command again with the same work directory resumes the shards which are not complete.
+     */
+    private static void detectBetweenCommitsInShards(String[] args) throws Exception {
+        if (!(args.length == 6 || args.length == 7)) {
+            System.out.println("Incorrect arguments. Please, use '-h' option for help.\n");
+            return;
+        }
+        String folder = args[1];
+        String startCommit = args[2];
+        String endCommit = args[3];
+        int shardCount = Integer.parseInt(args[4]);
+        File workDirectory = new File(args[5]);
+        int workerCount = (args.length == 7) ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+        ShardedHistoryMiner miner = new ShardedHistoryMiner(workDirectory);
+        List<ShardedHistoryMiner.Shard> shards = miner.plan(folder, startCommit, endCommit, shardCount);
+        System.out.printf("Mining %d shards with %d workers in %s%n", shards.size(), workerCount, workDirectory);
+        File resultFile = miner.run(Math.min(workerCount, shards.size()));
+        System.out.println("Refactorings written to " + resultFile);
+        if (!miner.getIncompleteShards().isEmpty() || !miner.getFailedCommits().isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Mines the shards of the work directory that are neither complete nor claimed, as a worker of
+     * {@link #detectBetweenCommitsInShards}.
+     */
+    private static void runShardWorker(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.out.println("Incorrect arguments. Please, use '-h' option for help.\n");
+            return;
+        }
+        if (!new ShardedHistoryMiner(new File(args[1])).work()) {
+            System.exit(1);
         }
     }
 
@@ -161,8 +287,23 @@ public class KotlinRMiner {
         System.out.println(
             "-bc <git-repo-folder> <start-commit-sha1> <end-commit-sha1>\tDetect refactorings between " +
                 "<start-commit-sha1> and <end-commit-sha1> for a project <git-repo-folder>.");
+        System.out.println(
+            "-daemon <port>\t\t\t\t\t\t\tServe '-c <git-repo-folder> <commit-sha1>' requests, one per line, from " +
+                "a warm process, answering each with the JSON of the commit on one line. The requests are read " +
+                "from the local port <port> or, if <port> is not specified, from the standard input.");
+        System.out.println(
+            "-sbc <git-repo-folder> <start-commit-sha1> <end-commit-sha1> <shards> <work-dir> [<workers>]\tDetect " +
+                "refactorings between <start-commit-sha1> and <end-commit-sha1> in <shards> shards mined by " +
+                "<workers> processes. The shards are recorded in <work-dir>, and running the command again resumes " +
+                "the incomplete shards. If <workers> is not specified, one worker per processor is started.");
+        System.out.println(
+            "-shard-worker <work-dir>\t\t\t\t\tMine the shards of <work-dir> which are not claimed by other " +
+                "workers, e.g. on another machine sharing <work-dir>.");
         System.out.println(
             "-all <git-repo-folder> <branch>\t\t\t\t\tDetect all refactorings at the <branch> for <git-repo-folder>. " +
                 "If <branch> is not specified, commits from master branch are analyzed.");
+        System.out.println(
+            "--checkpoint <dir> [--resume]\t\t\t\t\tWith -all and -bc, periodically record the processed commits " +
+                "and their results in <dir>. With --resume, skip the commits recorded by a previous run.");
     }
 }
@@ -0,0 +1,159 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import com.fasterxml.jackson.core.util.BufferRecyclers;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.research.kotlinrminer.cli.util.EnvironmentManager;
+import org.jetbrains.research.kotlinrminer.cli.util.JsonUtil;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Serves detection requests from a long-running process, so that the JVM, the Kotlin environment, the opened
+ * repositories and the caches of {@link GitHistoryKotlinRMiner} stay warm between requests.
+ * <p>
+ * The protocol is line-based: every request is a line {@code -c <git-repo-folder> <commit-sha1>}, answered with a
+ * single line holding the JSON object of the commit, or a line {@code {"error": "..."}}. The line {@code quit}
+ * closes the connection, and {@code shutdown} stops the daemon. Requests are served one at a time.
+ */
+public class KotlinRMinerDaemon implements Closeable {
+    private final Map<String, Repository> repositories = new HashMap<>();
+    private final Map<String, GitHistoryKotlinRMiner> detectors = new HashMap<>();
+    private final GitService gitService = new GitService();
+    private volatile boolean shutdown;
+
+    /**
+     * Serves the requests read from the stream until it is closed or a {@code quit} request.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        EnvironmentManager.getParsingEnvironment();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        String line;
+        while (!shutdown && (line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equalsIgnoreCase("quit")) {
+                break;
+            }
+            if (line.equalsIgnoreCase("shutdown")) {
+                shutdown = true;
+                break;
+            }
+            writer.write(handleRequest(line));
+            writer.write("\n");
+            writer.flush();
+        }
+    }
+
+    /**
+     * Serves the connections to the given port of the loopback address until a {@code shutdown} request.
+     */
+    public void listen(int port) throws IOException {
+        EnvironmentManager.getParsingEnvironment();
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Listening on " + serverSocket.getLocalSocketAddress());
+            while (!shutdown) {
+                try (Socket socket = serverSocket.accept()) {
+                    serve(socket.getInputStream(), socket.getOutputStream());
+                } catch (IOException e) {
+                    System.err.println("Error serving connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String handleRequest(String request) {
+        String[] args = request.split("\\s+");
+        if (args.length != 3 || !args[0].equalsIgnoreCase("-c")) {
+            return errorJSON("Incorrect request: " + request);
+        }
+        try {
+            Repository repository = getRepository(args[1]);
+            if (repository.resolve(args[2]) == null) {
+                return errorJSON("Unknown commit: " + args[2]);
+            }
+            String gitURL = repository.getConfig().getString("remote", "origin", "url");
+            StringBuilder sb = new StringBuilder();
+            List<Exception> exceptions = new ArrayList<>();
+            getDetector(args[1]).detectAtCommit(repository, args[2], new RefactoringHandler() {
+                private String declarationsOnlyCommitId;
+
+                @Override
+                public void handleDeclarationsOnly(String commitId, long sourceSize) {
+                    declarationsOnlyCommitId = commitId;
+                }
+
+                @Override
+                public void handle(String commitId, List<Refactoring> refactorings) {
+                    JsonUtil.commitJSON(sb, gitURL, commitId, refactorings, commitId.equals(declarationsOnlyCommitId));
+                }
+
+                @Override
+                public void handleException(String commit, Exception e) {
+                    exceptions.add(e);
+                }
+            });
+            if (!exceptions.isEmpty()) {
+                return errorJSON(String.valueOf(exceptions.get(0)));
+            }
+            if (sb.length() == 0) {
+                JsonUtil.commitJSON(sb, gitURL, args[2], Collections.emptyList());
+            }
+            return toSingleLine(sb);
+        } catch (Exception e) {
+            return errorJSON(String.valueOf(e));
+        }
+    }
+
+    private Repository getRepository(String folder) throws Exception {
+        String key = new File(folder).getAbsolutePath();
+        Repository repository = repositories.get(key);
+        if (repository == null) {
+            repository = gitService.openRepository(folder);
+            repositories.put(key, repository);
+        }
+        return repository;
+    }
+
+    private GitHistoryKotlinRMiner getDetector(String folder) {
+        return detectors.computeIfAbsent(new File(folder).getAbsolutePath(), k -> new GitHistoryKotlinRMiner());
+    }
+
+    /**
+     * The strings of the JSON objects are escaped, so line breaks and tabs only format the objects.
+     */
+    private static String toSingleLine(CharSequence json) {
+        StringBuilder sb = new StringBuilder(json.length());
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c != '\n' && c != '\t') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String errorJSON(String message) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"error\": \"");
+        BufferRecyclers.getJsonStringEncoder().quoteAsString(message, sb);
+        sb.append("\"}");
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        for (Repository repository : repositories.values()) {
+            repository.close();
+        }
+        repositories.clear();
+        detectors.clear();
+    }
+}
@@ -18,6 +18,19 @@ public abstract class RefactoringHandler {
         return false;
     }
 
+    /**
+     * Indicates commits that should be ignored, given their metadata and changed files, e.g. commits of bots or
+     * commits importing vendored or generated code. Called for the commits not skipped by
+     * {@link #skipCommit(String)}, before the commit is diffed and parsed.
+     * You may override this method to implement a custom logic.
+     *
+     * @param commit The commit, whose metadata and changed files are loaded on demand.
+     * @return True to skip the commit, false otherwise.
+     */
+    public boolean skipCommit(CommitInfo commit) {
+        return false;
+    }
+
     /**
      * This method is called after each commit is analyzed.
      * You should override this method to do your custom logic with the list of detected refactorings.
@@ -28,6 +41,18 @@ public abstract class RefactoringHandler {
     public void handle(String commitId, List<Refactoring> refactorings) {
     }
 
+    /**
+     * This method is called when the changed files of the given commit are too large to be analyzed within the model
+     * memory budget, before they are analyzed from their declarations only. The refactorings detected from the
+     * bodies of the operations, e.g. extracted or inlined methods, are then not reported for the commit.
+     * You may override this method to implement a custom logic, e.g. mark the results of the commit as partial.
+     *
+     * @param commitId   The sha of the commit.
+     * @param sourceSize The size in bytes of the changed Kotlin files, before and after the commit.
+     */
+    public void handleDeclarationsOnly(String commitId, long sourceSize) {
+    }
+
     /**
      * This method is called whenever an exception is thrown during the analysis of the given commit.
      * You should override this method to do your custom logic in the case of exceptions (e.g. skip or rethrow).
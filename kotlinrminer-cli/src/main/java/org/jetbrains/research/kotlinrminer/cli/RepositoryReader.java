@@ -0,0 +1,125 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Reads the trees and blobs of a repository through a single {@link ObjectReader}, so that the pack windows and
+ * delta base caches of the reader are reused across all commits of a history walk. Decoded blobs are kept in a
+ * cache bounded by their total length, as the files changed by a commit are usually changed by the neighbouring
+ * commits as well. Not thread-safe: every worker should use its own reader.
+ */
+public class RepositoryReader implements AutoCloseable {
+    private static final long DEFAULT_MAX_CACHED_CHARS = 32 * 1024 * 1024;
+    private final ObjectReader objectReader;
+    private final long maxCachedChars;
+    private final LinkedHashMap<ObjectId, String> blobCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedChars;
+
+    public RepositoryReader(Repository repository) {
+        this(repository, DEFAULT_MAX_CACHED_CHARS);
+    }
+
+    public RepositoryReader(Repository repository, long maxCachedChars) {
+        this.objectReader = repository.newObjectReader();
+        this.maxCachedChars = maxCachedChars;
+    }
+
+    public ObjectReader getObjectReader() {
+        return objectReader;
+    }
+
+    /**
+     * Returns the contents of the given files of the tree, in tree order. The blobs which are not cached are
+     * requested from the object database in a single batch.
+     */
+    public Map<String, String> readFiles(RevTree tree, List<String> filePaths) throws IOException {
+        Map<String, String> fileContents = new LinkedHashMap<>();
+        if (filePaths.isEmpty()) {
+            return fileContents;
+        }
+        Map<ObjectId, List<String>> missingBlobs = new LinkedHashMap<>();
+        try (TreeWalk treeWalk = new TreeWalk(objectReader)) {
+            treeWalk.addTree(tree);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathFilterGroup.createFromStrings(filePaths));
+            while (treeWalk.next()) {
+                String pathString = treeWalk.getPathString();
+                ObjectId objectId = treeWalk.getObjectId(0);
+                String content = blobCache.get(objectId);
+                //keep the tree order, the missing contents are filled in below
+                fileContents.put(pathString, content);
+                if (content == null) {
+                    missingBlobs.computeIfAbsent(objectId, k -> new ArrayList<>()).add(pathString);
+                }
+            }
+        }
+        if (!missingBlobs.isEmpty()) {
+            AsyncObjectLoaderQueue<ObjectId> queue = objectReader.open(missingBlobs.keySet(), true);
+            try {
+                while (queue.next()) {
+                    String content = RawParseUtils.decode(queue.open().getCachedBytes(Integer.MAX_VALUE));
+                    ObjectId objectId = queue.getObjectId();
+                    for (String pathString : missingBlobs.get(objectId)) {
+                        fileContents.put(pathString, content);
+                    }
+                    cacheBlob(objectId, content);
+                }
+            } finally {
+                queue.release();
+            }
+        }
+        return fileContents;
+    }
+
+    /**
+     * Returns the total size in bytes of the given files of the tree, read from the object headers without loading
+     * the contents.
+     */
+    public long sizeOfFiles(RevTree tree, List<String> filePaths) throws IOException {
+        long size = 0;
+        if (filePaths.isEmpty()) {
+            return size;
+        }
+        try (TreeWalk treeWalk = new TreeWalk(objectReader)) {
+            treeWalk.addTree(tree);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathFilterGroup.createFromStrings(filePaths));
+            while (treeWalk.next()) {
+                size += objectReader.getObjectSize(treeWalk.getObjectId(0), Constants.OBJ_BLOB);
+            }
+        }
+        return size;
+    }
+
+    private void cacheBlob(ObjectId objectId, String content) {
+        if (content.length() > maxCachedChars) {
+            return;
+        }
+        if (blobCache.put(objectId, content) == null) {
+            cachedChars += content.length();
+        }
+        Iterator<String> iterator = blobCache.values().iterator();
+        while (cachedChars > maxCachedChars && iterator.hasNext()) {
+            cachedChars -= iterator.next().length();
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public void close() {
+        objectReader.close();
+        blobCache.clear();
+        cachedChars = 0;
+    }
+}
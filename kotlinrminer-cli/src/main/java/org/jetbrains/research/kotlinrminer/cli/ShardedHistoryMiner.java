@@ -0,0 +1,381 @@
+package org.jetbrains.research.kotlinrminer.cli;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.research.kotlinrminer.cli.util.JsonUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Mines a commit range in several shards, processed by separate worker processes.
+ * <p>
+ * The range is split along the first-parent chain of its end commit, so that the shards partition the range:
+ * a shard covers the commits reachable from its end commit but neither from the end commit of the previous shard
+ * nor from the start commit of the range, and is mined with {@link GitHistoryKotlinRMiner#detectBetweenCommits}. The shards are recorded in a manifest
+ * in the work directory. Workers claim shards by creating lock files, so workers on several machines may share
+ * the work directory through a shared filesystem. Every shard writes its results to its own file, which only
+ * appears once the shard is complete: running the miner again on the same work directory resumes the remaining
+ * shards, and the results of all shards are finally merged into one JSON file. The commits which could not be
+ * mined are listed next to the results of their shard, and reported with the incomplete shards by the merge.
+ */
+public class ShardedHistoryMiner {
+    private static final String MANIFEST_FILE = "manifest.properties";
+    private static final String RESULT_FILE = "refactorings.json";
+    private static final String SYSTEM_PROPERTY_PREFIX = "kotlinrminer.";
+    private final File workDirectory;
+
+    public ShardedHistoryMiner(File workDirectory) {
+        this.workDirectory = workDirectory;
+    }
+
+    /**
+     * Splits the range into shards and writes the manifest, unless the work directory already contains one.
+     * An empty range, e.g. when the end commit is the start commit, gives no shards.
+     */
+    public List<Shard> plan(String repositoryPath, String startCommitId, String endCommitId, int shardCount)
+        throws Exception {
+        File manifestFile = new File(workDirectory, MANIFEST_FILE);
+        if (manifestFile.exists()) {
+            return loadShards();
+        }
+        List<String> boundaries = new ArrayList<>();
+        GitService gitService = new GitService();
+        try (Repository repository = gitService.openRepository(repositoryPath)) {
+            List<String> chain = firstParentChain(repository, startCommitId, endCommitId);
+            int count = Math.min(Math.max(1, shardCount), chain.size());
+            for (int k = 1; k <= count; k++) {
+                boundaries.add(chain.get((int) ((long) k * chain.size() / count) - 1));
+            }
+        }
+        List<Shard> shards = new ArrayList<>();
+        String previousBoundary = startCommitId;
+        for (String boundary : boundaries) {
+            shards.add(new Shard(shards.size(), previousBoundary, boundary, startCommitId));
+            previousBoundary = boundary;
+        }
+        Properties manifest = new Properties();
+        manifest.setProperty("repository", new File(repositoryPath).getAbsolutePath());
+        manifest.setProperty("start", startCommitId);
+        manifest.setProperty("shards", String.valueOf(shards.size()));
+        for (Shard shard : shards) {
+            manifest.setProperty("shard." + shard.index + ".start", shard.startCommitId);
+            manifest.setProperty("shard." + shard.index + ".end", shard.endCommitId);
+        }
+        Files.createDirectories(workDirectory.toPath());
+        File temporaryFile = new File(workDirectory, MANIFEST_FILE + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8)) {
+            manifest.store(writer, "kotlinRMiner shards");
+        }
+        Files.move(temporaryFile.toPath(), manifestFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return shards;
+    }
+
+    /**
+     * Runs the given number of worker processes on the shards of the manifest and merges their results.
+     * Locks left by the workers of an interrupted run are released first, so this method should not be called
+     * while other workers are running on the same work directory.
+     *
+     * @return the file with the merged results
+     */
+    public File run(int workerCount) throws Exception {
+        for (Shard shard : loadShards()) {
+            if (!getOutputFile(shard).exists()) {
+                Files.deleteIfExists(getLockFile(shard).toPath());
+            }
+        }
+        List<Process> workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new ProcessBuilder(workerCommand())
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start());
+        }
+        for (Process worker : workers) {
+            worker.waitFor();
+        }
+        return merge();
+    }
+
+    /**
+     * Mines every shard of the manifest that is neither complete nor claimed by another worker.
+     *
+     * @return false if a shard could not be mined
+     */
+    public boolean work() throws Exception {
+        boolean success = true;
+        Properties manifest = loadManifest();
+        String repositoryPath = manifest.getProperty("repository");
+        GitService gitService = new GitService();
+        try (Repository repository = gitService.openRepository(repositoryPath)) {
+            for (Shard shard : loadShards()) {
+                if (getOutputFile(shard).exists() || !tryLock(shard)) {
+                    continue;
+                }
+                try {
+                    mine(repository, shard);
+                } catch (Exception e) {
+                    System.err.println("Error processing shard " + shard.index);
+                    e.printStackTrace(System.err);
+                    success = false;
+                } finally {
+                    Files.deleteIfExists(getLockFile(shard).toPath());
+                }
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Merges the results of the complete shards, in the order of the range, and reports the incomplete shards and
+     * the commits which could not be mined.
+     *
+     * @return the file with the merged results
+     */
+    public File merge() throws Exception {
+        File resultFile = new File(workDirectory, RESULT_FILE);
+        List<Shard> incompleteShards = new ArrayList<>();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(resultFile))) {
+            StringBuilder sb = new StringBuilder();
+            JsonUtil.startJSON(sb);
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            boolean first = true;
+            for (Shard shard : loadShards()) {
+                File outputFile = getOutputFile(shard);
+                if (!outputFile.exists()) {
+                    incompleteShards.add(shard);
+                } else if (outputFile.length() > 0) {
+                    if (!first) {
+                        out.write(",\n".getBytes(StandardCharsets.UTF_8));
+                    }
+                    Files.copy(outputFile.toPath(), out);
+                    first = false;
+                }
+            }
+            sb.setLength(0);
+            sb.append("\n");
+            JsonUtil.endJSON(sb);
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        for (Shard shard : incompleteShards) {
+            System.err.println("Shard " + shard.index + " is incomplete: " + shard.startCommitId + ".." +
+                shard.endCommitId);
+        }
+        for (String commitId : getFailedCommits()) {
+            System.err.println("Commit " + commitId + " could not be mined");
+        }
+        return resultFile;
+    }
+
+    /**
+     * Returns the shards of the manifest without results.
+     */
+    public List<Shard> getIncompleteShards() throws IOException {
+        List<Shard> incompleteShards = new ArrayList<>();
+        for (Shard shard : loadShards()) {
+            if (!getOutputFile(shard).exists()) {
+                incompleteShards.add(shard);
+            }
+        }
+        return incompleteShards;
+    }
+
+    /**
+     * Returns the commits of the complete shards which could not be mined, in the order of the range.
+     */
+    public List<String> getFailedCommits() throws IOException {
+        List<String> failedCommits = new ArrayList<>();
+        for (Shard shard : loadShards()) {
+            File failedCommitsFile = getFailedCommitsFile(shard);
+            if (getOutputFile(shard).exists() && failedCommitsFile.exists()) {
+                failedCommits.addAll(Files.readAllLines(failedCommitsFile.toPath(), StandardCharsets.UTF_8));
+            }
+        }
+        return failedCommits;
+    }
+
+    private void mine(Repository repository, Shard shard) throws Exception {
+        String gitURL = repository.getConfig().getString("remote", "origin", "url");
+        File outputFile = getOutputFile(shard);
+        File temporaryFile = new File(workDirectory, outputFile.getName() + ".tmp");
+        List<String> failedCommits = new ArrayList<>();
+        try (Writer writer = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8))) {
+            GitHistoryKotlinRMiner detector = new GitHistoryKotlinRMiner();
+            detector.detectBetweenCommits(repository, shard.getExcludedCommitIds(), shard.endCommitId,
+                new RefactoringHandler() {
+                    private int commitCount = 0;
+                    private String declarationsOnlyCommitId;
+
+                    @Override
+                    public void handleDeclarationsOnly(String commitId, long sourceSize) {
+                        declarationsOnlyCommitId = commitId;
+                    }
+
+                    @Override
+                    public void handle(String commitId, List<Refactoring> refactorings) {
+                        StringBuilder sb = new StringBuilder();
+                        if (commitCount > 0) {
+                            sb.append(",").append("\n");
+                        }
+                        JsonUtil.commitJSON(sb, gitURL, commitId, refactorings,
+                            commitId.equals(declarationsOnlyCommitId));
+                        commitCount++;
+                        try {
+                            writer.write(sb.toString());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+
+                    @Override
+                    public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+                        System.out.printf("Shard %d: [Commits: %d, Errors: %d, Refactorings: %d]%n",
+                            shard.index, commitsCount, errorCommitsCount, refactoringsCount);
+                    }
+
+                    @Override
+                    public void handleException(String commit, Exception e) {
+                        if (e instanceof UncheckedIOException) {
+                            throw (UncheckedIOException) e;
+                        }
+                        System.err.println("Error processing commit " + commit);
+                        e.printStackTrace(System.err);
+                        failedCommits.add(commit);
+                    }
+                });
+        }
+        //the failed commits are written first, as the results mark the shard as complete
+        Files.write(getFailedCommitsFile(shard).toPath(), failedCommits, StandardCharsets.UTF_8);
+        Files.move(temporaryFile.toPath(), outputFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean tryLock(Shard shard) throws IOException {
+        try {
+            Files.createFile(getLockFile(shard).toPath());
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    private List<String> workerCommand() {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PROPERTY_PREFIX)) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(KotlinRMiner.class.getName());
+        command.add("-shard-worker");
+        command.add(workDirectory.getPath());
+        return command;
+    }
+
+    private Properties loadManifest() throws IOException {
+        Properties manifest = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(new File(workDirectory, MANIFEST_FILE)),
+            StandardCharsets.UTF_8)) {
+            manifest.load(reader);
+        }
+        return manifest;
+    }
+
+    private List<Shard> loadShards() throws IOException {
+        Properties manifest = loadManifest();
+        int shardCount = Integer.parseInt(manifest.getProperty("shards"));
+        List<Shard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            String startCommitId = manifest.getProperty("shard." + i + ".start");
+            //manifests written before the start of the range was recorded
+            String rangeStartCommitId = manifest.getProperty("start", startCommitId);
+            shards.add(new Shard(i, startCommitId, manifest.getProperty("shard." + i + ".end"),
+                rangeStartCommitId));
+        }
+        return shards;
+    }
+
+    private File getOutputFile(Shard shard) {
+        return new File(workDirectory, "shard-" + shard.index + ".json");
+    }
+
+    private File getFailedCommitsFile(Shard shard) {
+        return new File(workDirectory, "shard-" + shard.index + ".failed");
+    }
+
+    private File getLockFile(Shard shard) {
+        return new File(workDirectory, "shard-" + shard.index + ".lock");
+    }
+
+    /**
+     * Returns the first-parent chain of the end commit inside the range, oldest first.
+     */
+    private static List<String> firstParentChain(Repository repository, String startCommitId, String endCommitId)
+        throws Exception {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.markStart(walk.parseCommit(repository.resolve(endCommitId)));
+            walk.markUninteresting(walk.parseCommit(repository.resolve(startCommitId)));
+            Set<ObjectId> range = new HashSet<>();
+            for (RevCommit commit : walk) {
+                range.add(commit.copy());
+            }
+            LinkedList<String> chain = new LinkedList<>();
+            RevCommit commit = walk.parseCommit(repository.resolve(endCommitId));
+            while (commit != null && range.contains(commit)) {
+                chain.addFirst(commit.getId().getName());
+                commit = commit.getParentCount() > 0 ? walk.parseCommit(commit.getParent(0)) : null;
+            }
+            return chain;
+        }
+    }
+
+    /**
+     * The commits reachable from the end commit of the shard but neither from its start commit nor from the start
+     * commit of the range.
+     */
+    public static class Shard {
+        private final int index;
+        private final String startCommitId;
+        private final String endCommitId;
+        private final String rangeStartCommitId;
+
+        public Shard(int index, String startCommitId, String endCommitId, String rangeStartCommitId) {
+            this.index = index;
+            this.startCommitId = startCommitId;
+            this.endCommitId = endCommitId;
+            this.rangeStartCommitId = rangeStartCommitId;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getStartCommitId() {
+            return startCommitId;
+        }
+
+        public String getEndCommitId() {
+            return endCommitId;
+        }
+
+        /**
+         * Returns the commits whose ancestors are not part of the shard.
+         */
+        public List<String> getExcludedCommitIds() {
+            if (startCommitId.equals(rangeStartCommitId)) {
+                return Collections.singletonList(startCommitId);
+            }
+            return Arrays.asList(startCommitId, rangeStartCommitId);
+        }
+    }
+}
@@ -5,12 +5,10 @@ import static org.jetbrains.kotlin.lexer.KtTokens.PRIVATE_KEYWORD;
 import static org.jetbrains.kotlin.lexer.KtTokens.PROTECTED_KEYWORD;
 import static org.jetbrains.kotlin.lexer.KtTokens.PUBLIC_KEYWORD;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment;
-import org.jetbrains.kotlin.com.intellij.openapi.util.io.FileUtilRt;
 import org.jetbrains.kotlin.com.intellij.openapi.vfs.CharsetToolkit;
 import org.jetbrains.kotlin.com.intellij.psi.PsiElement;
 import org.jetbrains.kotlin.com.intellij.psi.PsiFile;
@@ -43,6 +41,7 @@ import org.jetbrains.research.kotlinrminer.cli.decomposition.LocationInfo;
 import org.jetbrains.research.kotlinrminer.cli.decomposition.OperationBody;
 import org.jetbrains.research.kotlinrminer.cli.decomposition.VariableDeclaration;
 import org.jetbrains.research.kotlinrminer.cli.util.KotlinLightVirtualFile;
+import org.jetbrains.research.kotlinrminer.cli.util.PsiUtils;
 import org.jetbrains.research.kotlinrminer.cli.uml.*;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 
@@ -51,15 +50,34 @@ import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
  */
 public class UMLModelPsiReaderCli {
     private final UMLModel umlModel;
+    private boolean declarationsOnly;
 
     public UMLModelPsiReaderCli(Set<String> repositoryDirectories) {
         this.umlModel = new UMLModel(repositoryDirectories);
     }
 
+    /**
+     * If set, the bodies of the functions are not kept, which reduces the memory used by the model to the one of
+     * the declarations. The refactorings detected from the function bodies are then not detected.
+     */
+    public void setDeclarationsOnly(boolean declarationsOnly) {
+        this.declarationsOnly = declarationsOnly;
+    }
+
+    /**
+     * Adds the classes and functions of the files to the model. The contents of each file are removed from the map
+     * as the file is parsed, so that they can be released before the remaining files are parsed.
+     *
+     * @param kotlinFileContents the contents of the files by file path, a modifiable map
+     */
     public void parseFiles(Map<String, String> kotlinFileContents) throws IOException {
-        for (String filePath : kotlinFileContents.keySet()) {
-            KtFile ktFile = (KtFile) buildPsiFile(filePath, EnvironmentManager.createKotlinCoreEnvironment(new HashSet<>()),
-                kotlinFileContents.get(filePath));
+        KotlinCoreEnvironment environment = EnvironmentManager.getParsingEnvironment();
+        Iterator<Map.Entry<String, String>> iterator = kotlinFileContents.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> fileContent = iterator.next();
+            String filePath = fileContent.getKey();
+            KtFile ktFile = (KtFile) buildPsiFile(filePath, environment, fileContent.getValue());
+            iterator.remove();
             List<String> importedTypes = processImports(ktFile);
             PsiElement[] elementsInFile = ktFile.getChildren();
             List<KtNamedFunction> packageLevelFunctions = new ArrayList<>();
@@ -305,9 +323,11 @@ public class UMLModelPsiReaderCli {
 
         KtBlockExpression methodBody = methodDeclaration.getBodyBlockExpression();
         if (methodBody != null) {
-            OperationBody body = new OperationBody(ktFile.getContainingKtFile(), filePath, methodBody);
+            //the body keeps the parsed file until it is built
+            OperationBody body = declarationsOnly ?
+                null : new OperationBody(ktFile.getContainingKtFile(), filePath, methodBody);
             umlOperation.setBody(body);
-            if (methodBody.getStatements().size() == 0) {
+            if (PsiUtils.isEmptyBlock(methodBody.getText())) {
                 umlOperation.setEmptyBody(true);
             }
         } else {
@@ -402,11 +422,12 @@ public class UMLModelPsiReaderCli {
         return visibility;
     }
 
-    public PsiFile buildPsiFile(String file, KotlinCoreEnvironment environment, String content) throws IOException {
-        File newFile = new File("tmp/" + file);
-        FileUtilRt.createDirectory(newFile);
+    /**
+     * Builds the PSI of the file in memory, the file path is only used as the path of the virtual file.
+     */
+    public PsiFile buildPsiFile(String file, KotlinCoreEnvironment environment, String content) {
         PsiFileFactoryImpl factory = (PsiFileFactoryImpl) PsiFileFactory.getInstance(environment.getProject());
-        KotlinLightVirtualFile virtualFile = new KotlinLightVirtualFile(newFile, content);
+        KotlinLightVirtualFile virtualFile = new KotlinLightVirtualFile(file, content);
         virtualFile.setCharset(CharsetToolkit.UTF8_CHARSET);
         return factory.trySetupPsiForFile(virtualFile, KotlinLanguage.INSTANCE, true, false);
     }
@@ -10,22 +10,23 @@ import java.util.List;
 import java.util.Map;
 
 public class AbstractExpression extends AbstractCodeFragment {
+    private static final int VARIABLES = 0;
+    private static final int TYPES = 1;
+    private static final int STRING_LITERALS = 2;
+    private static final int NUMBER_LITERALS = 3;
+    private static final int NULL_LITERALS = 4;
+    private static final int BOOLEAN_LITERALS = 5;
+    private static final int TYPE_LITERALS = 6;
+    private static final int ARRAY_ACCESSES = 7;
+    private static final int PREFIX_EXPRESSIONS = 8;
+    private static final int POSTFIX_EXPRESSIONS = 9;
+    private static final int INFIX_OPERATORS = 10;
+    private static final int ARGUMENTS = 11;
     private final String expression;
     private final LocationInfo locationInfo;
     private CompositeStatementObject owner;
-    private final List<String> variables;
-    private final List<String> types;
-    private final List<String> stringLiterals;
-    private final List<String> numberLiterals;
-    private final List<String> nullLiterals;
-    private final List<String> booleanLiterals;
-    private final List<String> typeLiterals;
+    private final PackedStringLists strings;
     private final List<VariableDeclaration> variableDeclarations;
-    private final List<String> arrayAccesses;
-    private final List<String> arguments;
-    private final List<String> prefixExpressions;
-    private final List<String> postfixExpressions;
-    private final List<String> infixOperators;
     private final List<LambdaExpressionObject> lambdas;
     private final Map<String, List<ObjectCreation>> creationMap;
     private final Map<String, List<OperationInvocation>> methodInvocationMap;
@@ -35,26 +36,30 @@ public class AbstractExpression extends AbstractCodeFragment {
                               KtExpression expression,
                               CodeElementType codeElementType) {
         this.locationInfo = new LocationInfo(cu, filePath, expression, codeElementType);
-        Visitor visitor = new Visitor(cu, filePath);
-        expression.accept(visitor);
-        this.variables = visitor.getVariables();
-        this.types = visitor.getTypes();
-        this.variableDeclarations = visitor.getVariableDeclarations();
-        this.stringLiterals = visitor.getStringLiterals();
-        this.numberLiterals = visitor.getNumberLiterals();
-        this.nullLiterals = visitor.getNullLiterals();
-        this.booleanLiterals = visitor.getBooleanLiterals();
-        this.typeLiterals = visitor.getTypeLiterals();
-        this.arrayAccesses = visitor.getArrayAccesses();
-        this.arguments = visitor.getArguments();
-        this.prefixExpressions = visitor.getPrefixExpressions();
-        this.postfixExpressions = visitor.getPostfixExpressions();
-        this.infixOperators = visitor.getInfixOperators();
-        this.lambdas = visitor.getLambdas();
+        Visitor visitor = Visitor.obtain(cu, filePath);
+        try {
+            expression.accept(visitor);
+            this.strings = PackedStringLists.pack(visitor.getVariables(),
+                visitor.getTypes(),
+                visitor.getStringLiterals(),
+                visitor.getNumberLiterals(),
+                visitor.getNullLiterals(),
+                visitor.getBooleanLiterals(),
+                visitor.getTypeLiterals(),
+                visitor.getArrayAccesses(),
+                visitor.getPrefixExpressions(),
+                visitor.getPostfixExpressions(),
+                visitor.getInfixOperators(),
+                visitor.getArguments());
+            this.variableDeclarations = PackedStringLists.compact(visitor.getVariableDeclarations());
+            this.lambdas = PackedStringLists.compact(visitor.getLambdas());
+            this.creationMap = PackedStringLists.compact(visitor.getCreationMap());
+            this.methodInvocationMap = PackedStringLists.compact(visitor.getMethodInvocationMap());
+        } finally {
+            visitor.release();
+        }
         this.expression = expression.getText();
         this.owner = null;
-        this.creationMap = visitor.getCreationMap();
-        this.methodInvocationMap = visitor.getMethodInvocationMap();
     }
 
     public void setOwner(CompositeStatementObject owner) {
@@ -84,12 +89,12 @@ public class AbstractExpression extends AbstractCodeFragment {
 
     @Override
     public List<String> getVariables() {
-        return variables;
+        return strings.get(VARIABLES);
     }
 
     @Override
     public List<String> getTypes() {
-        return types;
+        return strings.get(TYPES);
     }
 
     @Override
@@ -110,27 +115,27 @@ public class AbstractExpression extends AbstractCodeFragment {
 
     @Override
     public List<String> getStringLiterals() {
-        return stringLiterals;
+        return strings.get(STRING_LITERALS);
     }
 
     @Override
     public List<String> getNumberLiterals() {
-        return numberLiterals;
+        return strings.get(NUMBER_LITERALS);
     }
 
     @Override
     public List<String> getNullLiterals() {
-        return nullLiterals;
+        return strings.get(NULL_LITERALS);
     }
 
     @Override
     public List<String> getBooleanLiterals() {
-        return booleanLiterals;
+        return strings.get(BOOLEAN_LITERALS);
     }
 
     @Override
     public List<String> getTypeLiterals() {
-        return typeLiterals;
+        return strings.get(TYPE_LITERALS);
     }
 
     @Override
@@ -140,22 +145,22 @@ public class AbstractExpression extends AbstractCodeFragment {
 
     @Override
     public List<String> getArrayAccesses() {
-        return arrayAccesses;
+        return strings.get(ARRAY_ACCESSES);
     }
 
     @Override
     public List<String> getPrefixExpressions() {
-        return prefixExpressions;
+        return strings.get(PREFIX_EXPRESSIONS);
     }
 
     @Override
     public List<String> getPostfixExpressions() {
-        return postfixExpressions;
+        return strings.get(POSTFIX_EXPRESSIONS);
     }
 
     @Override
     public List<String> getInfixOperators() {
-        return infixOperators;
+        return strings.get(INFIX_OPERATORS);
     }
 
     //TODO
@@ -166,7 +171,7 @@ public class AbstractExpression extends AbstractCodeFragment {
 
     @Override
     public List<String> getArguments() {
-        return arguments;
+        return strings.get(ARGUMENTS);
     }
 
     public LocationInfo getLocationInfo() {
@@ -1,6 +1,9 @@
 package org.jetbrains.research.kotlinrminer.cli.decomposition;
 
 import org.jetbrains.kotlin.psi.*;
+import org.jetbrains.research.kotlinrminer.cli.util.EnvironmentManager;
+import org.jetbrains.research.kotlinrminer.cli.util.LineTable;
+import org.jetbrains.research.kotlinrminer.cli.util.PsiUtils;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 
 import java.util.ArrayList;
@@ -8,40 +11,140 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Statements of an operation body. The statements are built on first access: the parser leaves function bodies
+ * unparsed until their contents are requested, and most operations of a commit are never mapped.
+ * <p>
+ * Until then, only the text of the body is kept, with its offset and the line table of its file, so that the parsed
+ * file can be released. The body is reparsed alone, after a declaration padded to the same offset, which gives its
+ * elements the locations they have in the original file. Building is synchronized and works on a file of its own.
+ * If the reparsed body does not match the original one, e.g. in a file with syntax errors, it is built anyway and
+ * its locations are approximate.
+ */
 public class OperationBody {
-
-    private final CompositeStatementObject compositeStatement;
+    private static final String FUNCTION_PREFIX = "fun f()";
+    private static final String LAMBDA_PREFIX = "val f={";
+    private String filePath;
+    private String text;
+    private int startOffset;
+    private boolean lambdaBody;
+    private LineTable lineTable;
+    private volatile CompositeStatementObject compositeStatement;
+    private final long fingerprint;
 
     public OperationBody(KtFile cu, String filePath, KtBlockExpression methodBody) {
-        this.compositeStatement = new CompositeStatementObject(cu, filePath, methodBody, 0, CodeElementType.BLOCK);
-        List<KtExpression> statements = methodBody.getStatements();
-        for (KtExpression statement : statements) {
-            processStatement(cu, filePath, compositeStatement, statement);
+        this(cu, filePath, methodBody, true);
+    }
+
+    OperationBody(KtFile cu, String filePath, KtBlockExpression methodBody, boolean lazy) {
+        String text = methodBody.getText();
+        this.fingerprint = PsiUtils.fingerprint(text);
+        this.lambdaBody = methodBody.getParent() instanceof KtFunctionLiteral;
+        this.startOffset = methodBody.getTextRange().getStartOffset();
+        this.lineTable = LineTable.of(cu);
+        if (!lazy || startOffset < (lambdaBody ? LAMBDA_PREFIX : FUNCTION_PREFIX).length()) {
+            //the body cannot be reparsed at its offset
+            this.compositeStatement = build(cu, filePath, methodBody);
+        } else {
+            this.filePath = filePath;
+            this.text = text;
         }
     }
 
+    /**
+     * Hash of the tokens of the body, computed without parsing it. Bodies with different fingerprints differ,
+     * bodies with the same fingerprint are almost certainly identical up to whitespaces and comments.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
     public int statementCount() {
-        return compositeStatement.statementCount();
+        return getCompositeStatement().statementCount();
     }
 
     public CompositeStatementObject getCompositeStatement() {
-        return compositeStatement;
+        CompositeStatementObject statement = compositeStatement;
+        if (statement == null) {
+            synchronized (this) {
+                statement = compositeStatement;
+                if (statement == null) {
+                    KtBlockExpression methodBody = reparse();
+                    statement = build(methodBody.getContainingKtFile(), filePath, methodBody);
+                    compositeStatement = statement;
+                    filePath = null;
+                    text = null;
+                    lineTable = null;
+                }
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * Builds the statements of the body and of the lambdas it contains, if they are not built yet.
+     */
+    public void build() {
+        for (LambdaExpressionObject lambda : getCompositeStatement().getAllLambdas()) {
+            if (lambda.getBody() != null) {
+                lambda.getBody().build();
+            }
+        }
+    }
+
+    private CompositeStatementObject build(KtFile cu, String filePath, KtBlockExpression methodBody) {
+        CompositeStatementObject statement =
+            new CompositeStatementObject(cu, filePath, methodBody, 0, CodeElementType.BLOCK);
+        for (KtExpression blockStatement : methodBody.getStatements()) {
+            processStatement(cu, filePath, statement, blockStatement);
+        }
+        return statement;
+    }
+
+    private KtBlockExpression reparse() {
+        String prefix = lambdaBody ? LAMBDA_PREFIX : FUNCTION_PREFIX;
+        StringBuilder fileText = new StringBuilder(startOffset + text.length() + 1);
+        for (int i = prefix.length(); i < startOffset; i++) {
+            fileText.append(' ');
+        }
+        fileText.append(prefix).append(text);
+        if (lambdaBody) {
+            fileText.append('}');
+        }
+        KtPsiFactory psiFactory = new KtPsiFactory(EnvironmentManager.getParsingEnvironment().getProject());
+        KtFile ktFile = psiFactory.createFile(filePath, fileText.toString());
+        LineTable.attach(ktFile, lineTable);
+        KtBlockExpression methodBody = null;
+        KtDeclaration declaration = ktFile.getDeclarations().isEmpty() ? null : ktFile.getDeclarations().get(0);
+        if (lambdaBody && declaration instanceof KtProperty) {
+            KtExpression initializer = ((KtProperty) declaration).getInitializer();
+            if (initializer instanceof KtLambdaExpression) {
+                methodBody = ((KtLambdaExpression) initializer).getBodyExpression();
+            }
+        } else if (!lambdaBody && declaration instanceof KtNamedFunction) {
+            methodBody = ((KtNamedFunction) declaration).getBodyBlockExpression();
+        }
+        if (methodBody == null) {
+            //only the statements of the body are lost, the operation itself is still compared
+            methodBody = psiFactory.createEmptyBody();
+        }
+        return methodBody;
     }
 
     public List<String> getAllVariables() {
-        return new ArrayList<>(compositeStatement.getAllVariables());
+        return new ArrayList<>(getCompositeStatement().getAllVariables());
     }
 
     public List<VariableDeclaration> getAllVariableDeclarations() {
-        return new ArrayList<>(compositeStatement.getAllVariableDeclarations());
+        return new ArrayList<>(getCompositeStatement().getAllVariableDeclarations());
     }
 
     public List<VariableDeclaration> getVariableDeclarationsInScope(LocationInfo location) {
-        return new ArrayList<>(compositeStatement.getVariableDeclarationsInScope(location));
+        return new ArrayList<>(getCompositeStatement().getVariableDeclarationsInScope(location));
     }
 
     public VariableDeclaration getVariableDeclaration(String variableName) {
-        return compositeStatement.getVariableDeclaration(variableName);
+        return getCompositeStatement().getVariableDeclaration(variableName);
     }
 
     private void processStatement(KtFile ktFile,
@@ -243,20 +346,20 @@ public class OperationBody {
     }
 
     public Map<String, Set<String>> aliasedAttributes() {
-        return compositeStatement.aliasedAttributes();
+        return getCompositeStatement().aliasedAttributes();
     }
 
     public CompositeStatementObject loopWithVariables(String currentElementName, String collectionName) {
-        return compositeStatement.loopWithVariables(currentElementName, collectionName);
+        return getCompositeStatement().loopWithVariables(currentElementName, collectionName);
     }
 
     public List<String> stringRepresentation() {
-        return compositeStatement.stringRepresentation();
+        return getCompositeStatement().stringRepresentation();
     }
 
     public List<OperationInvocation> getAllOperationInvocations() {
         List<OperationInvocation> invocations = new ArrayList<>();
-        Map<String, List<OperationInvocation>> invocationMap = compositeStatement.getAllMethodInvocations();
+        Map<String, List<OperationInvocation>> invocationMap = getCompositeStatement().getAllMethodInvocations();
         for (String key : invocationMap.keySet()) {
             invocations.addAll(invocationMap.get(key));
         }
@@ -264,6 +367,6 @@ public class OperationBody {
     }
 
     public List<LambdaExpressionObject> getAllLambdas() {
-        return new ArrayList<>(compositeStatement.getAllLambdas());
+        return new ArrayList<>(getCompositeStatement().getAllLambdas());
     }
 }
@@ -4,6 +4,7 @@ import org.jetbrains.kotlin.psi.*;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 import org.jetbrains.research.kotlinrminer.common.util.PrefixSuffixUtils;
 import org.jetbrains.research.kotlinrminer.common.util.StringDistance;
+import org.jetbrains.research.kotlinrminer.common.util.SymbolTable;
 import org.jetbrains.research.kotlinrminer.cli.diff.UMLModelDiff;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLParameter;
@@ -20,7 +21,10 @@ public class OperationInvocation extends AbstractCall {
     public OperationInvocation(KtFile ktFile, String filePath, KtCallExpression invocation) {
         this.locationInfo = new LocationInfo(ktFile, filePath, invocation,
                                              CodeElementType.METHOD_INVOCATION);
-        this.methodName = invocation.getCalleeExpression().getText();
+        //only the names are interned, not the called expressions, e.g. lambdas
+        KtExpression calleeExpression = invocation.getCalleeExpression();
+        this.methodName = calleeExpression instanceof KtNameReferenceExpression ?
+            SymbolTable.symbol(calleeExpression.getText()) : calleeExpression.getText();
         this.typeArguments = invocation.getValueArguments().size();
         this.arguments = new ArrayList<>();
         List<KtValueArgument> args = invocation.getValueArguments();
@@ -11,24 +11,25 @@ import java.util.List;
 import java.util.Map;
 
 public class StatementObject extends AbstractStatement {
+    private static final int VARIABLES = 0;
+    private static final int TYPES = 1;
+    private static final int STRING_LITERALS = 2;
+    private static final int NUMBER_LITERALS = 3;
+    private static final int NULL_LITERALS = 4;
+    private static final int BOOLEAN_LITERALS = 5;
+    private static final int TYPE_LITERALS = 6;
+    private static final int ARRAY_ACCESSES = 7;
+    private static final int PREFIX_EXPRESSIONS = 8;
+    private static final int POSTFIX_EXPRESSIONS = 9;
+    private static final int INFIX_OPERATORS = 10;
+    private static final int ARGUMENTS = 11;
     private final String statement;
     private final LocationInfo locationInfo;
-    private final List<String> variables;
-    private final List<String> types;
+    private final PackedStringLists strings;
     private final List<VariableDeclaration> variableDeclarations;
     private final Map<String, List<OperationInvocation>> methodInvocationMap;
     //TODO private List<AnonymousClassDeclarationObject> anonymousClassDeclarations;
-    private final List<String> stringLiterals;
-    private final List<String> numberLiterals;
-    private final List<String> nullLiterals;
-    private final List<String> booleanLiterals;
-    private final List<String> typeLiterals;
     //TODO private Map<String, List<ObjectCreation>> creationMap;
-    private final List<String> arrayAccesses;
-    private final List<String> prefixExpressions;
-    private final List<String> postfixExpressions;
-    private final List<String> infixOperators;
-    private final List<String> arguments;
     private final List<LambdaExpressionObject> lambdas;
 
     public StatementObject(KtFile cu,
@@ -38,23 +39,27 @@ public class StatementObject extends AbstractStatement {
                            CodeElementType codeElementType) {
         super();
         this.locationInfo = new LocationInfo(cu, filePath, statement, codeElementType);
-        Visitor visitor = new Visitor(cu, filePath);
-        statement.accept(visitor);
-        this.variables = visitor.getVariables();
-        this.types = visitor.getTypes();
-        this.variableDeclarations = visitor.getVariableDeclarations();
-        this.methodInvocationMap = visitor.getMethodInvocationMap();
-        this.stringLiterals = visitor.getStringLiterals();
-        this.numberLiterals = visitor.getNumberLiterals();
-        this.nullLiterals = visitor.getNullLiterals();
-        this.booleanLiterals = visitor.getBooleanLiterals();
-        this.typeLiterals = visitor.getTypeLiterals();
-        this.arrayAccesses = visitor.getArrayAccesses();
-        this.prefixExpressions = visitor.getPrefixExpressions();
-        this.postfixExpressions = visitor.getPostfixExpressions();
-        this.infixOperators = visitor.getInfixOperators();
-        this.arguments = visitor.getArguments();
-        this.lambdas = visitor.getLambdas();
+        Visitor visitor = Visitor.obtain(cu, filePath);
+        try {
+            statement.accept(visitor);
+            this.strings = PackedStringLists.pack(visitor.getVariables(),
+                visitor.getTypes(),
+                visitor.getStringLiterals(),
+                visitor.getNumberLiterals(),
+                visitor.getNullLiterals(),
+                visitor.getBooleanLiterals(),
+                visitor.getTypeLiterals(),
+                visitor.getArrayAccesses(),
+                visitor.getPrefixExpressions(),
+                visitor.getPostfixExpressions(),
+                visitor.getInfixOperators(),
+                visitor.getArguments());
+            this.variableDeclarations = PackedStringLists.compact(visitor.getVariableDeclarations());
+            this.methodInvocationMap = PackedStringLists.compact(visitor.getMethodInvocationMap());
+            this.lambdas = PackedStringLists.compact(visitor.getLambdas());
+        } finally {
+            visitor.release();
+        }
         setDepth(depth);
         this.statement = statement.getText();
     }
@@ -78,12 +83,12 @@ public class StatementObject extends AbstractStatement {
 
     @Override
     public List<String> getVariables() {
-        return variables;
+        return strings.get(VARIABLES);
     }
 
     @Override
     public List<String> getTypes() {
-        return types;
+        return strings.get(TYPES);
     }
 
     @Override
@@ -110,27 +115,27 @@ public class StatementObject extends AbstractStatement {
 
     @Override
     public List<String> getStringLiterals() {
-        return stringLiterals;
+        return strings.get(STRING_LITERALS);
     }
 
     @Override
     public List<String> getNumberLiterals() {
-        return numberLiterals;
+        return strings.get(NUMBER_LITERALS);
     }
 
     @Override
     public List<String> getNullLiterals() {
-        return nullLiterals;
+        return strings.get(NULL_LITERALS);
     }
 
     @Override
     public List<String> getBooleanLiterals() {
-        return booleanLiterals;
+        return strings.get(BOOLEAN_LITERALS);
     }
 
     @Override
     public List<String> getTypeLiterals() {
-        return typeLiterals;
+        return strings.get(TYPE_LITERALS);
     }
 
     @Override
@@ -140,27 +145,27 @@ public class StatementObject extends AbstractStatement {
 
     @Override
     public List<String> getArrayAccesses() {
-        return arrayAccesses;
+        return strings.get(ARRAY_ACCESSES);
     }
 
     @Override
     public List<String> getPrefixExpressions() {
-        return prefixExpressions;
+        return strings.get(PREFIX_EXPRESSIONS);
     }
 
     @Override
     public List<String> getPostfixExpressions() {
-        return postfixExpressions;
+        return strings.get(POSTFIX_EXPRESSIONS);
     }
 
     @Override
     public List<String> getInfixOperators() {
-        return infixOperators;
+        return strings.get(INFIX_OPERATORS);
     }
 
     @Override
     public List<String> getArguments() {
-        return arguments;
+        return strings.get(ARGUMENTS);
     }
 
     @Override
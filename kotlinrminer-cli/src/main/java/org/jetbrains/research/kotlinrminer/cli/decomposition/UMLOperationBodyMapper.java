@@ -96,6 +96,10 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
                     parameterToArgumentMap2.put("this.", "");
                 }
             }
+            if (body1.getFingerprint() == body2.getFingerprint() && parameterToArgumentMap1.isEmpty() &&
+                parameterToArgumentMap2.isEmpty() && mapIdenticalBodies(composite1, composite2)) {
+                return;
+            }
             resetNodes(leaves1);
             //replace parameters with arguments in leaves1
             if (!parameterToArgumentMap1.isEmpty()) {
@@ -146,6 +150,56 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
         }
     }
 
+    /**
+     * Maps the statements of two bodies with the same fingerprint one-to-one, in the order of their trees, instead
+     * of searching for the best matches. Gives up if the statements turn out to differ.
+     *
+     * @return true if all statements were mapped
+     */
+    private boolean mapIdenticalBodies(CompositeStatementObject composite1,
+                                       CompositeStatementObject composite2) {
+        List<StatementObject> leaves1 = composite1.getLeaves();
+        List<StatementObject> leaves2 = composite2.getLeaves();
+        List<CompositeStatementObject> innerNodes1 = composite1.getInnerNodes();
+        innerNodes1.remove(composite1);
+        List<CompositeStatementObject> innerNodes2 = composite2.getInnerNodes();
+        innerNodes2.remove(composite2);
+        if (leaves1.size() != leaves2.size() || innerNodes1.size() != innerNodes2.size()) {
+            return false;
+        }
+        for (int i = 0; i < leaves1.size(); i++) {
+            if (!sameStatement(leaves1.get(i), leaves2.get(i))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < innerNodes1.size(); i++) {
+            if (!sameStatement(innerNodes1.get(i), innerNodes2.get(i))) {
+                return false;
+            }
+        }
+        resetNodes(leaves1);
+        resetNodes(leaves2);
+        resetNodes(innerNodes1);
+        resetNodes(innerNodes2);
+        for (int i = 0; i < leaves1.size(); i++) {
+            mappings.add(createLeafMapping(leaves1.get(i), leaves2.get(i), Collections.emptyMap()));
+        }
+        List<UMLOperation> removedOperations = classDiff != null ? classDiff.getRemovedOperations() : new ArrayList<>();
+        List<UMLOperation> addedOperations = classDiff != null ? classDiff.getAddedOperations() : new ArrayList<>();
+        for (int i = 0; i < innerNodes1.size(); i++) {
+            CompositeStatementObject statement1 = innerNodes1.get(i);
+            CompositeStatementObject statement2 = innerNodes2.get(i);
+            double score = computeScore(statement1, statement2, removedOperations, addedOperations);
+            mappings.add(createCompositeMapping(statement1, statement2, Collections.emptyMap(), score));
+        }
+        return true;
+    }
+
+    private static boolean sameStatement(AbstractCodeFragment statement1, AbstractCodeFragment statement2) {
+        return statement1.getClass() == statement2.getClass() && statement1.getDepth() == statement2.getDepth() &&
+            statement1.getString().equals(statement2.getString());
+    }
+
     private UMLOperationBodyMapper(LambdaExpressionObject lambda1,
                                    LambdaExpressionObject lambda2,
                                    UMLOperationBodyMapper parentMapper) throws RefactoringMinerTimedOutException {
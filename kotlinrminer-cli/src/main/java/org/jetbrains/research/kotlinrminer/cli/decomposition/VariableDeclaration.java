@@ -2,6 +2,7 @@ package org.jetbrains.research.kotlinrminer.cli.decomposition;
 
 import org.jetbrains.kotlin.psi.*;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
+import org.jetbrains.research.kotlinrminer.common.util.SymbolTable;
 import org.jetbrains.research.kotlinrminer.cli.diff.CodeRange;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLAnnotation;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLType;
@@ -34,7 +35,7 @@ public class VariableDeclaration implements LocationInfoProvider, VariableDeclar
             //TODO check for the code element type
             this.locationInfo =
                 new LocationInfo(ktFile, filePath, fragment, CodeElementType.SINGLE_VARIABLE_DECLARATION);
-            this.variableName = String.valueOf(fragment.getName());
+            this.variableName = SymbolTable.symbol(String.valueOf(fragment.getName()));
             this.type = UMLType.extractTypeObject(ktFile, filePath, parameter.getTypeReference(), 0);
             int startOffset = fragment.getStartOffsetInParent();
             int endOffset = startOffset + fragment.getTextLength();
@@ -49,7 +50,8 @@ public class VariableDeclaration implements LocationInfoProvider, VariableDeclar
             }
             //TODO check for the code element type
             this.locationInfo = new LocationInfo(ktFile, filePath, fragment, CodeElementType.FIELD_DECLARATION);
-            this.variableName = String.valueOf(((KtProperty) fragment).getNameIdentifier().getText());
+            this.variableName =
+                SymbolTable.symbol(String.valueOf(((KtProperty) fragment).getNameIdentifier().getText()));
             this.initializer = property.getInitializer() != null ?
                 new AbstractExpression(ktFile, filePath,
                                        property.getInitializer(),
@@ -66,7 +68,7 @@ public class VariableDeclaration implements LocationInfoProvider, VariableDeclar
             //TODO check for the code element type
             this.locationInfo =
                 new LocationInfo(ktFile, filePath, fragment, CodeElementType.VARIABLE_DECLARATION_EXPRESSION);
-            this.variableName = fragment.getName();
+            this.variableName = SymbolTable.symbol(fragment.getName());
             this.initializer = variableDeclaration.getInitializer() != null ?
                 new AbstractExpression(ktFile, filePath,
                                        variableDeclaration.getInitializer(),
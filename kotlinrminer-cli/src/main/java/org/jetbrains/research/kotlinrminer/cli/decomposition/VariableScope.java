@@ -1,10 +1,7 @@
 package org.jetbrains.research.kotlinrminer.cli.decomposition;
 
-import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
-import org.jetbrains.kotlin.com.intellij.psi.FileViewProvider;
 import org.jetbrains.kotlin.psi.KtFile;
-
-import static org.jetbrains.research.kotlinrminer.cli.util.PsiUtils.countColumn;
+import org.jetbrains.research.kotlinrminer.cli.util.LineTable;
 
 public class VariableScope {
     private final String filePath;
@@ -20,18 +17,16 @@ public class VariableScope {
         this.startOffset = startOffset;
         this.endOffset = endOffset;
 
-        FileViewProvider fileViewProvider = ktFile.getViewProvider();
-        Document document = fileViewProvider.getDocument();
-
-        this.startLine = document != null ? document.getLineNumber(startOffset) : 0;
-        this.endLine = document.getLineNumber(endOffset);
+        LineTable lineTable = LineTable.of(ktFile);
+        this.startLine = lineTable.getLineNumber(startOffset);
+        this.endLine = lineTable.getLineNumber(endOffset);
         //columns are 0-based
-        this.startColumn = countColumn(startLine, document);
+        this.startColumn = lineTable.getIndentation(startLine);
         //convert to 1-based
         if (this.startColumn > 0) {
             this.startColumn += 1;
         }
-        this.endColumn = countColumn(endLine, document);
+        this.endColumn = lineTable.getIndentation(endLine);
         //convert to 1-based
         if (this.endColumn > 0) {
             this.endColumn += 1;
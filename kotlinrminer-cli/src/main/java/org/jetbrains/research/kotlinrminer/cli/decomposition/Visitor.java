@@ -4,15 +4,22 @@ import org.jetbrains.kotlin.com.intellij.psi.stubs.IStubElementType;
 import org.jetbrains.kotlin.com.intellij.psi.tree.IElementType;
 import org.jetbrains.kotlin.lexer.KtSingleValueToken;
 import org.jetbrains.kotlin.psi.*;
+import org.jetbrains.research.kotlinrminer.common.util.SymbolTable;
 
-import javax.swing.tree.DefaultMutableTreeNode;
 import java.util.*;
 
 import static org.jetbrains.kotlin.psi.stubs.elements.KtStubElementTypes.*;
 
+/**
+ * Collects the variables, literals, invocations and other facts of a statement or an expression. The visitors are
+ * reused: {@link #obtain} returns a visitor from a per-thread pool, and {@link #release} clears its collections and
+ * returns it to the pool. Nested code fragments, e.g. the bodies of lambdas visited by a visitor, obtain their own.
+ */
 public class Visitor extends KtVisitor {
-    private final String filePath;
-    private final KtFile ktFile;
+    private static final int POOL_SIZE = 16;
+    private static final ThreadLocal<Deque<Visitor>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+    private String filePath;
+    private KtFile ktFile;
     private final List<String> variables = new ArrayList<>();
     private final List<String> types = new ArrayList<>();
     private final Map<String, List<OperationInvocation>> methodInvocationMap = new LinkedHashMap<>();
@@ -28,8 +35,8 @@ public class Visitor extends KtVisitor {
     private final List<String> infixOperators = new ArrayList<>();
     private final List<String> arguments = new ArrayList<>();
     private final List<LambdaExpressionObject> lambdas = new ArrayList<>();
-    private final DefaultMutableTreeNode root = new DefaultMutableTreeNode();
-    private final DefaultMutableTreeNode current = root;
+    //the anonymous class declaration being visited, anonymous classes are not processed yet
+    private AnonymousClassDeclarationObject currentAnonymousClass;
     //TODO: implement adding of created objects to the map
     //TODO: implement processing of objects
     private final Map<String, List<ObjectCreation>> creationMap = new LinkedHashMap<>();
@@ -39,6 +46,49 @@ public class Visitor extends KtVisitor {
         this.filePath = filePath;
     }
 
+    /**
+     * Returns a pooled visitor for the given file, which must be released after use.
+     */
+    public static Visitor obtain(KtFile file, String filePath) {
+        Visitor visitor = POOL.get().poll();
+        if (visitor == null) {
+            return new Visitor(file, filePath);
+        }
+        visitor.ktFile = file;
+        visitor.filePath = filePath;
+        return visitor;
+    }
+
+    /**
+     * Clears the collected facts and returns the visitor to the pool, the collections returned by the getters must
+     * not be used afterwards.
+     */
+    public void release() {
+        ktFile = null;
+        filePath = null;
+        variables.clear();
+        types.clear();
+        methodInvocationMap.clear();
+        variableDeclarations.clear();
+        stringLiterals.clear();
+        numberLiterals.clear();
+        nullLiterals.clear();
+        booleanLiterals.clear();
+        typeLiterals.clear();
+        arrayAccesses.clear();
+        prefixExpressions.clear();
+        postfixExpressions.clear();
+        infixOperators.clear();
+        arguments.clear();
+        lambdas.clear();
+        creationMap.clear();
+        currentAnonymousClass = null;
+        Deque<Visitor> pool = POOL.get();
+        if (pool.size() < POOL_SIZE) {
+            pool.push(this);
+        }
+    }
+
     @Override
     public Object visitExpression(KtExpression expression, Object data) {
         if (expression instanceof KtBinaryExpression) {
@@ -66,9 +116,8 @@ public class Visitor extends KtVisitor {
             stringLiterals.add(expression.getText());
         } else if (expression instanceof KtArrayAccessExpression) {
             arrayAccesses.add(expression.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getArrayAccesses().add(expression.getText());
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getArrayAccesses().add(expression.getText());
             }
         } else if (expression instanceof KtProperty) {
             processPropertyExpression((KtProperty) expression, data);
@@ -92,7 +141,7 @@ public class Visitor extends KtVisitor {
 
     private void processReferenceExpression(KtReferenceExpression expression) {
         if (expression instanceof KtNameReferenceExpression) {
-            this.variables.add(expression.getText());
+            this.variables.add(SymbolTable.symbol(expression.getText()));
         }
     }
 
@@ -121,7 +170,7 @@ public class Visitor extends KtVisitor {
         if (ktProperty.getNameIdentifier() != null) {
             VariableDeclaration variableDeclaration = new VariableDeclaration(ktFile, filePath, ktProperty);
             this.variableDeclarations.add(variableDeclaration);
-            this.variables.add(ktProperty.getNameIdentifier().getText());
+            this.variables.add(SymbolTable.symbol(ktProperty.getNameIdentifier().getText()));
         }
     }
 
@@ -134,9 +183,8 @@ public class Visitor extends KtVisitor {
     private void processLambdaExpression(KtLambdaExpression expression) {
         LambdaExpressionObject lambda = new LambdaExpressionObject(ktFile, filePath, expression);
         lambdas.add(lambda);
-/*        if (current.getUserObject() != null) {
-            AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-            // anonymous.getLambdas().add(lambda);
+/*        if (currentAnonymousClass != null) {
+            // currentAnonymousClass.getLambdas().add(lambda);
         }*/
         if (expression.getBodyExpression() != null)
             this.visitExpression(expression.getBodyExpression(), null);
@@ -167,17 +215,13 @@ public class Visitor extends KtVisitor {
     private void processElementType(IStubElementType type, KtValueArgument argument) {
         if (type == INTEGER_CONSTANT || type == FLOAT_CONSTANT) {
             numberLiterals.add(argument.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous =
-                    (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getNumberLiterals().add(argument.getText());
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getNumberLiterals().add(argument.getText());
             }
         } else if (type == STRING_TEMPLATE) {
             stringLiterals.add(argument.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous =
-                    (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getStringLiterals().add(argument.getText());
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getStringLiterals().add(argument.getText());
             }
         }
     }
@@ -201,9 +245,8 @@ public class Visitor extends KtVisitor {
 
     private void processPrefixExpression(KtPrefixExpression expression, Object data) {
         prefixExpressions.add(expression.getText());
-        if (current.getUserObject() != null) {
-            AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-            anonymous.getPrefixExpressions().add(expression.getText());
+        if (currentAnonymousClass != null) {
+            currentAnonymousClass.getPrefixExpressions().add(expression.getText());
         }
         if (expression.getBaseExpression() != null)
             this.visitExpression(expression.getBaseExpression(), data);
@@ -211,9 +254,8 @@ public class Visitor extends KtVisitor {
 
     private void processPostfixExpression(KtPostfixExpression expression) {
         postfixExpressions.add(expression.getText());
-        if (current.getUserObject() != null) {
-            AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-            anonymous.getPostfixExpressions().add(expression.getText());
+        if (currentAnonymousClass != null) {
+            currentAnonymousClass.getPostfixExpressions().add(expression.getText());
         }
     }
 
@@ -221,37 +263,32 @@ public class Visitor extends KtVisitor {
         IStubElementType elementType = expression.getElementType();
         if (elementType == BOOLEAN_CONSTANT) {
             booleanLiterals.add(expression.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getBooleanLiterals().add(expression.getText());
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getBooleanLiterals().add(expression.getText());
             }
         } else if (elementType == NULL) {
             nullLiterals.add(expression.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getNullLiterals().add(expression.getText());
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getNullLiterals().add(expression.getText());
             }
         } else if (elementType == INTEGER_CONSTANT || elementType == FLOAT_CONSTANT) {
             numberLiterals.add(expression.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getNumberLiterals().add(expression.getText());
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getNumberLiterals().add(expression.getText());
             }
         } else if (elementType == STRING_TEMPLATE) {
             stringLiterals.add(expression.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getStringLiterals().add(expression.getText());
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getStringLiterals().add(expression.getText());
             }
         }
     }
 
     private void processThisExpression(KtThisExpression expression) {
         if (!(expression.getParent() instanceof KtPropertyAccessor)) {
-            variables.add(expression.getText());
-            if (current.getUserObject() != null) {
-                AnonymousClassDeclarationObject anonymous = (AnonymousClassDeclarationObject) current.getUserObject();
-                anonymous.getVariables().add(expression.getText());
+            variables.add(SymbolTable.symbol(expression.getText()));
+            if (currentAnonymousClass != null) {
+                currentAnonymousClass.getVariables().add(expression.getText());
             }
         }
     }
@@ -260,7 +297,7 @@ public class Visitor extends KtVisitor {
         this.arguments.add(argument.getText());
         visitArgument(argument);
         if (argument.getArgumentExpression() instanceof KtNameReferenceExpression) {
-            variables.add(argument.getText());
+            variables.add(SymbolTable.symbol(argument.getText()));
         }
     }
 
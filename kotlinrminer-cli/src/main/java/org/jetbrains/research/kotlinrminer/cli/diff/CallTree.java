@@ -3,35 +3,44 @@ package org.jetbrains.research.kotlinrminer.cli.diff;
 import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class CallTree {
     private final CallTreeNode root;
+    private final Set<UMLOperation> invokedOperations = new HashSet<>();
+    private List<CallTreeNode> nodesInBreadthFirstOrder;
 
     public CallTree(CallTreeNode root) {
         this.root = root;
+        this.invokedOperations.add(root.getInvokedOperation());
+    }
+
+    public CallTreeNode getRoot() {
+        return root;
+    }
+
+    public void addChild(CallTreeNode parent, CallTreeNode node) {
+        parent.addChild(node);
+        invokedOperations.add(node.getInvokedOperation());
+        nodesInBreadthFirstOrder = null;
     }
 
     public List<CallTreeNode> getNodesInBreadthFirstOrder() {
-        List<CallTreeNode> nodes = new ArrayList<>();
-        List<CallTreeNode> queue = new LinkedList<>();
-        nodes.add(root);
-        queue.add(root);
-        while (!queue.isEmpty()) {
-            CallTreeNode node = queue.remove(0);
-            nodes.addAll(node.getChildren());
-            queue.addAll(node.getChildren());
+        if (nodesInBreadthFirstOrder == null) {
+            List<CallTreeNode> nodes = new ArrayList<>();
+            nodes.add(root);
+            for (int i = 0; i < nodes.size(); i++) {
+                nodes.addAll(nodes.get(i).getChildren());
+            }
+            nodesInBreadthFirstOrder = Collections.unmodifiableList(nodes);
         }
-        return nodes;
+        return nodesInBreadthFirstOrder;
     }
 
     public boolean contains(UMLOperation invokedOperation) {
-        for (CallTreeNode node : getNodesInBreadthFirstOrder()) {
-            if (node.getInvokedOperation().equals(invokedOperation)) {
-                return true;
-            }
-        }
-        return false;
+        return invokedOperations.contains(invokedOperation);
     }
-}
\ No newline at end of file
+}
@@ -2,19 +2,17 @@ package org.jetbrains.research.kotlinrminer.cli.diff;
 
 import java.util.Comparator;
 
-public class ClassRenameComparator implements Comparator<UMLClassRenameDiff> {
+public class ClassRenameComparator implements Comparator<UMLClassMatchCandidate> {
 
     @Override
-    public int compare(UMLClassRenameDiff o1, UMLClassRenameDiff o2) {
-        double nameDistance1 = o1.getRenamedClass().normalizedNameDistance(o1.getOriginalClass());
-        double nameDistance2 = o2.getRenamedClass().normalizedNameDistance(o2.getOriginalClass());
+    public int compare(UMLClassMatchCandidate o1, UMLClassMatchCandidate o2) {
+        double nameDistance1 = o1.getNameDistance();
+        double nameDistance2 = o2.getNameDistance();
 
         if (nameDistance1 != nameDistance2) {
             return Double.compare(nameDistance1, nameDistance2);
         } else {
-            double packageDistance1 = o1.getRenamedClass().normalizedPackageNameDistance(o1.getOriginalClass());
-            double packageDistance2 = o2.getRenamedClass().normalizedPackageNameDistance(o2.getOriginalClass());
-            return Double.compare(packageDistance1, packageDistance2);
+            return Double.compare(o1.getPackageNameDistance(), o2.getPackageNameDistance());
         }
     }
 }
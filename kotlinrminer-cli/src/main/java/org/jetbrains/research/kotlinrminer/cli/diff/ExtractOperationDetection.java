@@ -13,45 +13,62 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-public class ExtractOperationDetection {
+public class ExtractOperationDetection implements OperationDetection<ExtractOperationRefactoring> {
     private final UMLOperationBodyMapper mapper;
     private final List<UMLOperation> addedOperations;
     private final UMLClassBaseDiff classDiff;
     private final UMLModelDiff modelDiff;
     private final List<OperationInvocation> operationInvocations;
-    private final Map<CallTreeNode, CallTree> callTreeMap = new LinkedHashMap<>();
+    private final Map<String, UMLType> variableTypeMap;
+    private final CallGraph callGraph;
 
     public ExtractOperationDetection(UMLOperationBodyMapper mapper,
                                      List<UMLOperation> addedOperations,
                                      UMLClassBaseDiff classDiff,
                                      UMLModelDiff modelDiff) {
+        this(mapper, addedOperations, new CallGraph(addedOperations, modelDiff), classDiff, modelDiff);
+    }
+
+    /**
+     * @param callGraph invocation graph of {@code addedOperations}, which may be shared between detections
+     */
+    public ExtractOperationDetection(UMLOperationBodyMapper mapper,
+                                     List<UMLOperation> addedOperations,
+                                     CallGraph callGraph,
+                                     UMLClassBaseDiff classDiff,
+                                     UMLModelDiff modelDiff) {
         this.mapper = mapper;
         this.addedOperations = addedOperations;
+        this.callGraph = callGraph;
         this.classDiff = classDiff;
         this.modelDiff = modelDiff;
         this.operationInvocations = getInvocationsInSourceOperationAfterExtraction(mapper);
+        this.variableTypeMap = mapper.getOperation2().variableTypeMap();
+    }
+
+    @Override
+    public boolean callsOperation(UMLOperation addedOperation) {
+        return containsMatchingInvocation(addedOperation, operationInvocations, variableTypeMap);
     }
 
+    @Override
     public List<ExtractOperationRefactoring> check(UMLOperation addedOperation) throws
         RefactoringMinerTimedOutException {
         List<ExtractOperationRefactoring> refactorings = new ArrayList<>();
         if (!mapper.getNonMappedLeavesT1().isEmpty() || !mapper.getNonMappedInnerNodesT1().isEmpty() ||
             !mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
             List<OperationInvocation> addedOperationInvocations =
-                matchingInvocations(addedOperation, operationInvocations, mapper.getOperation2().variableTypeMap());
+                matchingInvocations(addedOperation, operationInvocations, variableTypeMap);
             if (addedOperationInvocations.size() > 0) {
-                int otherAddedMethodsCalled = 0;
+                boolean otherAddedMethodsCalled = false;
                 for (UMLOperation addedOperation2 : this.addedOperations) {
-                    if (!addedOperation.equals(addedOperation2)) {
-                        List<OperationInvocation> addedOperationInvocations2 =
-                            matchingInvocations(addedOperation2, operationInvocations,
-                                mapper.getOperation2().variableTypeMap());
-                        if (addedOperationInvocations2.size() > 0) {
-                            otherAddedMethodsCalled++;
-                        }
+                    if (!addedOperation.equals(addedOperation2) &&
+                        containsMatchingInvocation(addedOperation2, operationInvocations, variableTypeMap)) {
+                        otherAddedMethodsCalled = true;
+                        break;
                     }
                 }
-                if (otherAddedMethodsCalled == 0) {
+                if (!otherAddedMethodsCalled) {
                     for (OperationInvocation addedOperationInvocation : addedOperationInvocations) {
                         processAddedOperation(mapper, addedOperation, refactorings, addedOperationInvocations,
                             addedOperationInvocation);
@@ -71,15 +88,7 @@ public class ExtractOperationDetection {
                                        List<OperationInvocation> addedOperationInvocations,
                                        OperationInvocation addedOperationInvocation)
         throws RefactoringMinerTimedOutException {
-        CallTreeNode root = new CallTreeNode(mapper.getOperation1(), addedOperation, addedOperationInvocation);
-        CallTree callTree;
-        if (callTreeMap.containsKey(root)) {
-            callTree = callTreeMap.get(root);
-        } else {
-            callTree = new CallTree(root);
-            generateCallTree(addedOperation, root, callTree);
-            callTreeMap.put(root, callTree);
-        }
+        CallTree callTree = callGraph.getCallTree(addedOperation);
         UMLOperationBodyMapper operationBodyMapper =
             createMapperForExtractedMethod(mapper, mapper.getOperation1(), addedOperation, addedOperationInvocation);
         if (operationBodyMapper != null) {
@@ -87,8 +96,7 @@ public class ExtractOperationDetection {
             List<CallTreeNode> nodesInBreadthFirstOrder = callTree.getNodesInBreadthFirstOrder();
             for (int i = 1; i < nodesInBreadthFirstOrder.size(); i++) {
                 CallTreeNode node = nodesInBreadthFirstOrder.get(i);
-                if (matchingInvocations(node.getInvokedOperation(), operationInvocations,
-                    mapper.getOperation2().variableTypeMap()).size() == 0) {
+                if (!callsOperation(node.getInvokedOperation())) {
                     UMLOperationBodyMapper nestedMapper =
                         createMapperForExtractedMethod(mapper, node.getOriginalOperation(), node.getInvokedOperation(),
                             node.getInvocation());
@@ -203,19 +211,15 @@ public class ExtractOperationDetection {
         return addedOperationInvocations;
     }
 
-    private void generateCallTree(UMLOperation operation, CallTreeNode parent, CallTree callTree) {
-        List<OperationInvocation> invocations = operation.getAllOperationInvocations();
-        for (UMLOperation addedOperation : addedOperations) {
-            for (OperationInvocation invocation : invocations) {
-                if (invocation.matchesOperation(addedOperation, operation.variableTypeMap(), modelDiff)) {
-                    if (!callTree.contains(addedOperation)) {
-                        CallTreeNode node = new CallTreeNode(operation, addedOperation, invocation);
-                        parent.addChild(node);
-                        generateCallTree(addedOperation, node, callTree);
-                    }
-                }
+    private boolean containsMatchingInvocation(UMLOperation operation,
+                                               List<OperationInvocation> operationInvocations,
+                                               Map<String, UMLType> variableTypeMap) {
+        for (OperationInvocation invocation : operationInvocations) {
+            if (invocation.matchesOperation(operation, variableTypeMap, modelDiff)) {
+                return true;
             }
         }
+        return false;
     }
 
     private UMLOperationBodyMapper createMapperForExtractedMethod(UMLOperationBodyMapper mapper,
@@ -0,0 +1,19 @@
+package org.jetbrains.research.kotlinrminer.cli.diff;
+
+import org.jetbrains.research.kotlinrminer.cli.RefactoringMinerTimedOutException;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+
+import java.util.List;
+
+/**
+ * Detection of refactorings (extract, inline) between the operations of a body mapper and another operation.
+ */
+public interface OperationDetection<R> {
+    /**
+     * Returns true if the mapped operation calls the given operation.
+     * {@link #check(UMLOperation)} never reports anything for operations that are not called.
+     */
+    boolean callsOperation(UMLOperation operation);
+
+    List<R> check(UMLOperation operation) throws RefactoringMinerTimedOutException;
+}
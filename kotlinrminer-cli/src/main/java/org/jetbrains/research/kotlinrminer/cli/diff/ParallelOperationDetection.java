@@ -0,0 +1,125 @@
+package org.jetbrains.research.kotlinrminer.cli.diff;
+
+import org.jetbrains.research.kotlinrminer.cli.RefactoringMinerTimedOutException;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.UMLOperationBodyMapper;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Runs an {@link OperationDetection} for every (operation, mapper) pair concurrently.
+ * <p>
+ * A check mutates the statements of the mapped operations and of the operations reachable from the checked
+ * operation in the call graph. Pairs sharing any of these operations are grouped and checked sequentially,
+ * in the same order as the sequential detection; independent groups run in parallel. The results are only
+ * collected here, so that the caller can commit them serially and deterministically.
+ * <p>
+ * The bodies of the operations are built lazily from the parsed files, so the bodies of all the operations
+ * involved are built before the checks start, and the worker threads never parse.
+ */
+public class ParallelOperationDetection<R> {
+    private final List<UMLOperation> operations;
+    private final List<UMLOperationBodyMapper> mappers;
+    private final CallGraph callGraph;
+    private final Function<UMLOperationBodyMapper, OperationDetection<R>> detectionFactory;
+    private final Map<Object, Object> parents = new IdentityHashMap<>();
+    private final Set<UMLOperation> involvedOperations = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public ParallelOperationDetection(List<UMLOperation> operations,
+                                      List<UMLOperationBodyMapper> mappers,
+                                      CallGraph callGraph,
+                                      Function<UMLOperationBodyMapper, OperationDetection<R>> detectionFactory) {
+        this.operations = operations;
+        this.mappers = mappers;
+        this.callGraph = callGraph;
+        this.detectionFactory = detectionFactory;
+    }
+
+    /**
+     * Returns the refactorings detected for the i-th operation and the j-th mapper at index [i][j].
+     */
+    public List<List<List<R>>> detect() throws RefactoringMinerTimedOutException {
+        List<List<List<R>>> results = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            results.add(new ArrayList<>(Collections.nCopies(mappers.size(), Collections.emptyList())));
+        }
+        Collection<List<int[]>> groups = groupCallingPairs();
+        involvedOperations.addAll(operations);
+        for (UMLOperation operation : involvedOperations) {
+            if (operation.getBody() != null) {
+                operation.getBody().build();
+            }
+        }
+        try {
+            groups.parallelStream().forEach(pairs -> {
+                try {
+                    for (int[] pair : pairs) {
+                        OperationDetection<R> detection = detectionFactory.apply(mappers.get(pair[1]));
+                        results.get(pair[0]).set(pair[1], detection.check(operations.get(pair[0])));
+                    }
+                } catch (RefactoringMinerTimedOutException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RefactoringMinerTimedOutException) {
+                throw (RefactoringMinerTimedOutException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private Collection<List<int[]>> groupCallingPairs() {
+        List<int[]> callingPairs = new ArrayList<>();
+        for (int j = 0; j < mappers.size(); j++) {
+            UMLOperationBodyMapper mapper = mappers.get(j);
+            OperationDetection<R> detection = detectionFactory.apply(mapper);
+            for (int i = 0; i < operations.size(); i++) {
+                if (detection.callsOperation(operations.get(i))) {
+                    callingPairs.add(new int[]{i, j});
+                    union(mapper.getOperation1(), mapper.getOperation2());
+                    involvedOperations.add(mapper.getOperation1());
+                    involvedOperations.add(mapper.getOperation2());
+                    for (CallTreeNode node : callGraph.getCallTree(operations.get(i)).getNodesInBreadthFirstOrder()) {
+                        union(mapper.getOperation1(), node.getInvokedOperation());
+                        involvedOperations.add(node.getInvokedOperation());
+                    }
+                }
+            }
+        }
+        callingPairs.sort(Comparator.<int[]>comparingInt(pair -> pair[0]).thenComparingInt(pair -> pair[1]));
+        Map<Object, List<int[]>> groups = new LinkedHashMap<>();
+        for (int[] pair : callingPairs) {
+            groups.computeIfAbsent(find(mappers.get(pair[1]).getOperation1()), k -> new ArrayList<>()).add(pair);
+        }
+        return groups.values();
+    }
+
+    private Object find(Object element) {
+        Object root = element;
+        Object parent;
+        while ((parent = parents.get(root)) != null && parent != root) {
+            root = parent;
+        }
+        if (parent == null) {
+            parents.put(root, root);
+        }
+        while (element != root) {
+            Object next = parents.get(element);
+            parents.put(element, root);
+            element = next;
+        }
+        return root;
+    }
+
+    private void union(Object element1, Object element2) {
+        Object root1 = find(element1);
+        Object root2 = find(element2);
+        if (root1 != root2) {
+            parents.put(root2, root1);
+        }
+    }
+}
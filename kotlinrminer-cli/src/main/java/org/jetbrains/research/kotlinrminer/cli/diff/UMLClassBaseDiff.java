@@ -13,9 +13,15 @@ import org.jetbrains.research.kotlinrminer.cli.Refactoring;
 import org.jetbrains.research.kotlinrminer.cli.RefactoringMinerTimedOutException;
 
 import java.util.*;
+import java.util.function.Function;
 
 public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
     public static final double MAX_OPERATION_NAME_DISTANCE = 0.4;
+    /**
+     * Enables concurrent extract/inline operation detection, e.g. {@code -Dkotlinrminer.parallelOperationDetection=true}.
+     */
+    private static final boolean PARALLEL_OPERATION_DETECTION =
+        Boolean.getBoolean("kotlinrminer.parallelOperationDetection");
     protected UMLClass originalClass;
     protected UMLClass nextClass;
     protected List<UMLOperation> addedOperations;
@@ -1559,11 +1565,18 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
 
     private void checkForInlinedOperations() throws RefactoringMinerTimedOutException {
         List<UMLOperation> operationsToBeRemoved = new ArrayList<>();
-        for (UMLOperation removedOperation : removedOperations) {
-            for (UMLOperationBodyMapper mapper : getOperationBodyMapperList()) {
-                InlineOperationDetection detection =
-                    new InlineOperationDetection(mapper, removedOperations, this, modelDiff);
-                List<InlineOperationRefactoring> refs = detection.check(removedOperation);
+        List<UMLOperationBodyMapper> mappers = getOperationBodyMapperList();
+        CallGraph callGraph = new CallGraph(removedOperations, modelDiff);
+        Function<UMLOperationBodyMapper, OperationDetection<InlineOperationRefactoring>> detectionFactory =
+            mapper -> new InlineOperationDetection(mapper, removedOperations, callGraph, this, modelDiff);
+        List<List<List<InlineOperationRefactoring>>> detectedRefactorings = PARALLEL_OPERATION_DETECTION ?
+            new ParallelOperationDetection<>(removedOperations, mappers, callGraph, detectionFactory).detect() : null;
+        for (int i = 0; i < removedOperations.size(); i++) {
+            UMLOperation removedOperation = removedOperations.get(i);
+            for (int j = 0; j < mappers.size(); j++) {
+                UMLOperationBodyMapper mapper = mappers.get(j);
+                List<InlineOperationRefactoring> refs = detectedRefactorings != null ?
+                    detectedRefactorings.get(i).get(j) : detectionFactory.apply(mapper).check(removedOperation);
                 for (InlineOperationRefactoring refactoring : refs) {
                     refactorings.add(refactoring);
                     UMLOperationBodyMapper operationBodyMapper = refactoring.getBodyMapper();
@@ -1578,11 +1591,18 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
 
     private void checkForExtractedOperations() throws RefactoringMinerTimedOutException {
         List<UMLOperation> operationsToBeRemoved = new ArrayList<>();
-        for (UMLOperation addedOperation : addedOperations) {
-            for (UMLOperationBodyMapper mapper : getOperationBodyMapperList()) {
-                ExtractOperationDetection detection =
-                    new ExtractOperationDetection(mapper, addedOperations, this, modelDiff);
-                List<ExtractOperationRefactoring> refs = detection.check(addedOperation);
+        List<UMLOperationBodyMapper> mappers = getOperationBodyMapperList();
+        CallGraph callGraph = new CallGraph(addedOperations, modelDiff);
+        Function<UMLOperationBodyMapper, OperationDetection<ExtractOperationRefactoring>> detectionFactory =
+            mapper -> new ExtractOperationDetection(mapper, addedOperations, callGraph, this, modelDiff);
+        List<List<List<ExtractOperationRefactoring>>> detectedRefactorings = PARALLEL_OPERATION_DETECTION ?
+            new ParallelOperationDetection<>(addedOperations, mappers, callGraph, detectionFactory).detect() : null;
+        for (int i = 0; i < addedOperations.size(); i++) {
+            UMLOperation addedOperation = addedOperations.get(i);
+            for (int j = 0; j < mappers.size(); j++) {
+                UMLOperationBodyMapper mapper = mappers.get(j);
+                List<ExtractOperationRefactoring> refs = detectedRefactorings != null ?
+                    detectedRefactorings.get(i).get(j) : detectionFactory.apply(mapper).check(addedOperation);
                 for (ExtractOperationRefactoring refactoring : refs) {
                     refactorings.add(refactoring);
                     UMLOperationBodyMapper operationBodyMapper = refactoring.getBodyMapper();
@@ -0,0 +1,49 @@
+package org.jetbrains.research.kotlinrminer.cli.diff;
+
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLClass;
+
+/**
+ * A removed class paired with an added class it matches, scored on demand.
+ * Only the best candidate of a removed class is turned into a {@link UMLClassBaseDiff}.
+ */
+public class UMLClassMatchCandidate {
+    private final UMLClass originalClass;
+    private final UMLClass nextClass;
+    private Double sourceFolderDistance;
+    private Double nameDistance;
+    private Double packageNameDistance;
+
+    public UMLClassMatchCandidate(UMLClass originalClass, UMLClass nextClass) {
+        this.originalClass = originalClass;
+        this.nextClass = nextClass;
+    }
+
+    public UMLClass getOriginalClass() {
+        return originalClass;
+    }
+
+    public UMLClass getNextClass() {
+        return nextClass;
+    }
+
+    public double getSourceFolderDistance() {
+        if (sourceFolderDistance == null) {
+            sourceFolderDistance = nextClass.normalizedSourceFolderDistance(originalClass);
+        }
+        return sourceFolderDistance;
+    }
+
+    public double getNameDistance() {
+        if (nameDistance == null) {
+            nameDistance = nextClass.normalizedNameDistance(originalClass);
+        }
+        return nameDistance;
+    }
+
+    public double getPackageNameDistance() {
+        if (packageNameDistance == null) {
+            packageNameDistance = nextClass.normalizedPackageNameDistance(originalClass);
+        }
+        return packageNameDistance;
+    }
+}
@@ -1281,41 +1281,32 @@ public class UMLModelDiff {
     public void checkForMovedClasses(Map<String, String> renamedFileHints,
                                      Set<String> repositoryDirectories, UMLClassMatcher matcher) throws
         RefactoringMinerTimedOutException {
+        UMLClassIndex addedClassIndex = new UMLClassIndex(addedClasses);
+        ClassMoveComparator comparator = new ClassMoveComparator();
         for (Iterator<UMLClass> removedClassIterator = removedClasses.iterator();
              removedClassIterator.hasNext(); ) {
             UMLClass removedClass = removedClassIterator.next();
-            TreeSet<UMLClassMoveDiff> diffSet = new TreeSet<>(new ClassMoveComparator());
-            for (UMLClass addedClass : addedClasses) {
-                String removedClassSourceFile = removedClass.getSourceFile();
-                String renamedFile = renamedFileHints.get(removedClassSourceFile);
-                String removedClassSourceFolder = "";
-                if (removedClassSourceFile.contains("/")) {
-                    removedClassSourceFolder =
-                        removedClassSourceFile.substring(0, removedClassSourceFile.lastIndexOf("/"));
-                }
-                if (!repositoryDirectories.contains(removedClassSourceFolder)) {
-                    deletedFolderPaths.add(removedClassSourceFolder);
-                    //add deleted sub-directories
-                    String subDirectory = removedClassSourceFolder;
-                    while (subDirectory.contains("/")) {
-                        subDirectory = subDirectory.substring(0, subDirectory.lastIndexOf("/"));
-                        if (!repositoryDirectories.contains(subDirectory)) {
-                            deletedFolderPaths.add(subDirectory);
-                        }
-                    }
-                }
+            String removedClassSourceFile = removedClass.getSourceFile();
+            String renamedFile = renamedFileHints.get(removedClassSourceFile);
+            if (!addedClasses.isEmpty()) {
+                processRemovedClassSourceFolder(removedClassSourceFile, repositoryDirectories);
+            }
+            UMLClassMatchCandidate bestCandidate = null;
+            for (UMLClass addedClass : matcher.candidates(addedClassIndex, removedClass, renamedFile)) {
                 if (matcher.match(removedClass, addedClass, renamedFile)) {
                     if (!conflictingMoveOfTopLevelClass(removedClass, addedClass)) {
-                        UMLClassMoveDiff classMoveDiff = new UMLClassMoveDiff(removedClass, addedClass, this);
-                        diffSet.add(classMoveDiff);
+                        bestCandidate = bestCandidate(bestCandidate,
+                            new UMLClassMatchCandidate(removedClass, addedClass), comparator);
                     }
                 }
             }
-            if (!diffSet.isEmpty()) {
-                UMLClassMoveDiff minClassMoveDiff = diffSet.first();
+            if (bestCandidate != null) {
+                UMLClassMoveDiff minClassMoveDiff =
+                    new UMLClassMoveDiff(bestCandidate.getOriginalClass(), bestCandidate.getNextClass(), this);
                 minClassMoveDiff.process();
                 classMoveDiffList.add(minClassMoveDiff);
                 addedClasses.remove(minClassMoveDiff.getMovedClass());
+                addedClassIndex.remove(minClassMoveDiff.getMovedClass());
                 removedClassIterator.remove();
             }
         }
@@ -1337,27 +1328,30 @@ public class UMLModelDiff {
 
     public void checkForRenamedClasses(Map<String, String> renamedFileHints,
                                        UMLClassMatcher matcher) throws RefactoringMinerTimedOutException {
+        UMLClassIndex addedClassIndex = new UMLClassIndex(addedClasses);
+        ClassRenameComparator comparator = new ClassRenameComparator();
         for (Iterator<UMLClass> removedClassIterator = removedClasses.iterator();
              removedClassIterator.hasNext(); ) {
             UMLClass removedClass = removedClassIterator.next();
-            TreeSet<UMLClassRenameDiff> diffSet = new TreeSet<>(new ClassRenameComparator());
-            for (UMLClass addedClass : addedClasses) {
-                String renamedFile = renamedFileHints.get(removedClass.getSourceFile());
+            String renamedFile = renamedFileHints.get(removedClass.getSourceFile());
+            UMLClassMatchCandidate bestCandidate = null;
+            for (UMLClass addedClass : matcher.candidates(addedClassIndex, removedClass, renamedFile)) {
                 if (!removedClass.getQualifiedName().equals(addedClass.getQualifiedName()) &&
                     matcher.match(removedClass, addedClass, renamedFile)) {
                     if (!conflictingMoveOfTopLevelClass(removedClass, addedClass) &&
                         !innerClassWithTheSameName(removedClass, addedClass)) {
-                        UMLClassRenameDiff classRenameDiff =
-                            new UMLClassRenameDiff(removedClass, addedClass, this);
-                        diffSet.add(classRenameDiff);
+                        bestCandidate = bestCandidate(bestCandidate,
+                            new UMLClassMatchCandidate(removedClass, addedClass), comparator);
                     }
                 }
             }
-            if (!diffSet.isEmpty()) {
-                UMLClassRenameDiff minClassRenameDiff = diffSet.first();
+            if (bestCandidate != null) {
+                UMLClassRenameDiff minClassRenameDiff =
+                    new UMLClassRenameDiff(bestCandidate.getOriginalClass(), bestCandidate.getNextClass(), this);
                 minClassRenameDiff.process();
                 classRenameDiffList.add(minClassRenameDiff);
                 addedClasses.remove(minClassRenameDiff.getRenamedClass());
+                addedClassIndex.remove(minClassRenameDiff.getRenamedClass());
                 removedClassIterator.remove();
             }
         }
@@ -1375,6 +1369,36 @@ public class UMLModelDiff {
         this.classMoveDiffList.removeAll(innerClassMoveDiffList);
     }
 
+    /**
+     * Keeps the earliest of equally ranked candidates, as the sorted sets used before did.
+     */
+    private static UMLClassMatchCandidate bestCandidate(UMLClassMatchCandidate bestCandidate,
+                                                        UMLClassMatchCandidate candidate,
+                                                        Comparator<UMLClassMatchCandidate> comparator) {
+        if (bestCandidate == null || comparator.compare(candidate, bestCandidate) < 0) {
+            return candidate;
+        }
+        return bestCandidate;
+    }
+
+    private void processRemovedClassSourceFolder(String removedClassSourceFile, Set<String> repositoryDirectories) {
+        String removedClassSourceFolder = "";
+        if (removedClassSourceFile.contains("/")) {
+            removedClassSourceFolder = removedClassSourceFile.substring(0, removedClassSourceFile.lastIndexOf("/"));
+        }
+        if (!repositoryDirectories.contains(removedClassSourceFolder)) {
+            deletedFolderPaths.add(removedClassSourceFolder);
+            //add deleted sub-directories
+            String subDirectory = removedClassSourceFolder;
+            while (subDirectory.contains("/")) {
+                subDirectory = subDirectory.substring(0, subDirectory.lastIndexOf("/"));
+                if (!repositoryDirectories.contains(subDirectory)) {
+                    deletedFolderPaths.add(subDirectory);
+                }
+            }
+        }
+    }
+
     private void checkForOperationMoves(List<UMLOperation> addedOperations, List<UMLOperation> removedOperations) throws
         RefactoringMinerTimedOutException {
         if (addedOperations.size() <= removedOperations.size()) {
@@ -0,0 +1,160 @@
+package org.jetbrains.research.kotlinrminer.cli.uml;
+
+import java.util.*;
+
+/**
+ * Inverted index of classes by simple name, kind, member signature and source file.
+ * Lets {@link UMLClassMatcher} implementations narrow down the classes a removed class has to be compared with.
+ * Every bucket keeps the classes in the order they were passed to the constructor.
+ */
+public class UMLClassIndex {
+    private final List<UMLClass> classes;
+    private final Map<UMLClass, Integer> positions;
+    private final Map<String, List<UMLClass>> classesByName;
+    private final Map<String, List<UMLClass>> classesByKind;
+    private final Map<String, List<UMLClass>> classesByMemberSignature;
+    private final Map<String, List<UMLClass>> classesBySourceFile;
+
+    public UMLClassIndex(List<UMLClass> classes) {
+        this.classes = new ArrayList<>(classes);
+        this.positions = new IdentityHashMap<>();
+        this.classesByName = new HashMap<>();
+        this.classesByKind = new HashMap<>();
+        this.classesByMemberSignature = new HashMap<>();
+        this.classesBySourceFile = new HashMap<>();
+        int position = 0;
+        for (UMLClass umlClass : classes) {
+            positions.put(umlClass, position++);
+            classesByName.computeIfAbsent(umlClass.getName(), k -> new ArrayList<>()).add(umlClass);
+            classesByKind.computeIfAbsent(kindKey(umlClass), k -> new ArrayList<>()).add(umlClass);
+            classesByMemberSignature.computeIfAbsent(memberSignatureKey(umlClass), k -> new ArrayList<>()).add(
+                umlClass);
+            classesBySourceFile.computeIfAbsent(umlClass.getSourceFile(), k -> new ArrayList<>()).add(umlClass);
+        }
+    }
+
+    public List<UMLClass> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Classes having the same simple name, a necessary condition of {@link UMLClass#hasSameNameAndKind(UMLClass)}.
+     */
+    public List<UMLClass> classesWithName(String name) {
+        return bucket(classesByName, name);
+    }
+
+    /**
+     * Classes that may satisfy {@link UMLClass#hasSameKind(UMLClass)} with the given class.
+     */
+    public List<UMLClass> classesOfSameKind(UMLClass umlClass) {
+        return bucket(classesByKind, kindKey(umlClass));
+    }
+
+    /**
+     * Classes that may satisfy both {@link UMLClass#hasSameKind(UMLClass)} and
+     * {@link UMLAbstractClass#hasSameAttributesAndOperations(UMLAbstractClass)} with the given class.
+     */
+    public List<UMLClass> classesWithSameMembers(UMLClass umlClass) {
+        return bucket(classesByMemberSignature, memberSignatureKey(umlClass));
+    }
+
+    public List<UMLClass> classesInSourceFile(String sourceFile) {
+        if (sourceFile == null) {
+            return Collections.emptyList();
+        }
+        return bucket(classesBySourceFile, sourceFile);
+    }
+
+    /**
+     * Merges two buckets of this index preserving the original order of the classes and dropping duplicates.
+     */
+    public List<UMLClass> union(List<UMLClass> classes1, List<UMLClass> classes2) {
+        if (classes1.isEmpty()) {
+            return classes2;
+        }
+        if (classes2.isEmpty()) {
+            return classes1;
+        }
+        List<UMLClass> union = new ArrayList<>(classes1.size() + classes2.size());
+        int i = 0;
+        int j = 0;
+        while (i < classes1.size() || j < classes2.size()) {
+            if (j == classes2.size()) {
+                union.add(classes1.get(i++));
+            } else if (i == classes1.size()) {
+                union.add(classes2.get(j++));
+            } else {
+                int position1 = positions.get(classes1.get(i));
+                int position2 = positions.get(classes2.get(j));
+                if (position1 < position2) {
+                    union.add(classes1.get(i++));
+                } else if (position1 > position2) {
+                    union.add(classes2.get(j++));
+                } else {
+                    union.add(classes1.get(i++));
+                    j++;
+                }
+            }
+        }
+        return union;
+    }
+
+    public void remove(UMLClass umlClass) {
+        if (positions.remove(umlClass) == null) {
+            return;
+        }
+        removeIdentical(classes, umlClass);
+        removeFromBucket(classesByName, umlClass.getName(), umlClass);
+        removeFromBucket(classesByKind, kindKey(umlClass), umlClass);
+        removeFromBucket(classesByMemberSignature, memberSignatureKey(umlClass), umlClass);
+        removeFromBucket(classesBySourceFile, umlClass.getSourceFile(), umlClass);
+    }
+
+    private static List<UMLClass> bucket(Map<String, List<UMLClass>> index, String key) {
+        List<UMLClass> bucket = index.get(key);
+        return bucket != null ? Collections.unmodifiableList(bucket) : Collections.emptyList();
+    }
+
+    private static void removeFromBucket(Map<String, List<UMLClass>> index, String key, UMLClass umlClass) {
+        List<UMLClass> bucket = index.get(key);
+        if (bucket != null) {
+            removeIdentical(bucket, umlClass);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static void removeIdentical(List<UMLClass> classes, UMLClass umlClass) {
+        for (Iterator<UMLClass> iterator = classes.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() == umlClass) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    private static String kindKey(UMLClass umlClass) {
+        return (umlClass.isAbstract() ? "A" : "-") + (umlClass.isInterface() ? "I" : "-") +
+            umlClass.getTypeParameterNames();
+    }
+
+    /**
+     * Two classes with the same kind and the same attributes and operations always have the same key:
+     * the attributes are compared by name and modifiers, the operations by abstractness and number of parameters.
+     */
+    private static String memberSignatureKey(UMLClass umlClass) {
+        Set<String> attributeKeys = new TreeSet<>();
+        for (UMLAttribute attribute : umlClass.getAttributes()) {
+            attributeKeys.add((attribute.isStatic() ? "S" : "-") + (attribute.isFinal() ? "F" : "-") +
+                attribute.getName());
+        }
+        Set<String> operationKeys = new TreeSet<>();
+        for (UMLOperation operation : umlClass.getOperations()) {
+            operationKeys.add((operation.isAbstract() ? "A" : "-") + operation.getParameters().size());
+        }
+        return kindKey(umlClass) + "|" + umlClass.getAttributes().size() + "|" + umlClass.getOperations().size() +
+            "|" + attributeKeys + "|" + operationKeys;
+    }
+}
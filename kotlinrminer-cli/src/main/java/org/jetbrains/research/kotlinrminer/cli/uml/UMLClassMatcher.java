@@ -1,9 +1,23 @@
 package org.jetbrains.research.kotlinrminer.cli.uml;
 
+import java.util.List;
+
 public interface UMLClassMatcher {
     boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile);
 
+    /**
+     * Returns the indexed classes that may match the removed class, in their original order.
+     * Every class accepted by {@link #match(UMLClass, UMLClass, String)} must be included.
+     */
+    default List<UMLClass> candidates(UMLClassIndex index, UMLClass removedClass, String renamedFile) {
+        return index.getClasses();
+    }
+
     class Move implements UMLClassMatcher {
+        public List<UMLClass> candidates(UMLClassIndex index, UMLClass removedClass, String renamedFile) {
+            return index.classesWithName(removedClass.getName());
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameNameAndKind(addedClass)
                 && (removedClass.hasSameAttributesAndOperations(addedClass) || addedClass.getSourceFile().equals(
@@ -12,6 +26,10 @@ public interface UMLClassMatcher {
     }
 
     class RelaxedMove implements UMLClassMatcher {
+        public List<UMLClass> candidates(UMLClassIndex index, UMLClass removedClass, String renamedFile) {
+            return index.classesWithName(removedClass.getName());
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameNameAndKind(addedClass)
                 && (removedClass.hasCommonAttributesAndOperations(addedClass) || addedClass.getSourceFile().equals(
@@ -20,6 +38,10 @@ public interface UMLClassMatcher {
     }
 
     class ExtremelyRelaxedMove implements UMLClassMatcher {
+        public List<UMLClass> candidates(UMLClassIndex index, UMLClass removedClass, String renamedFile) {
+            return index.classesWithName(removedClass.getName());
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameNameAndKind(addedClass)
                 && (removedClass.hasAttributesAndOperationsWithCommonNames(
@@ -28,6 +50,10 @@ public interface UMLClassMatcher {
     }
 
     class Rename implements UMLClassMatcher {
+        public List<UMLClass> candidates(UMLClassIndex index, UMLClass removedClass, String renamedFile) {
+            return index.union(index.classesWithSameMembers(removedClass), index.classesInSourceFile(renamedFile));
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameKind(addedClass)
                 && (removedClass.hasSameAttributesAndOperations(addedClass) || addedClass.getSourceFile().equals(
@@ -36,6 +62,10 @@ public interface UMLClassMatcher {
     }
 
     class RelaxedRename implements UMLClassMatcher {
+        public List<UMLClass> candidates(UMLClassIndex index, UMLClass removedClass, String renamedFile) {
+            return index.classesOfSameKind(removedClass);
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameKind(addedClass)
                 && (removedClass.hasCommonAttributesAndOperations(addedClass) || addedClass.getSourceFile().equals(
@@ -44,6 +74,10 @@ public interface UMLClassMatcher {
     }
 
     class ExtremelyRelaxedRename implements UMLClassMatcher {
+        public List<UMLClass> candidates(UMLClassIndex index, UMLClass removedClass, String renamedFile) {
+            return index.classesOfSameKind(removedClass);
+        }
+
         public boolean match(UMLClass removedClass, UMLClass addedClass, String renamedFile) {
             return removedClass.hasSameKind(addedClass)
                 && (removedClass.hasAttributesAndOperationsWithCommonNames(
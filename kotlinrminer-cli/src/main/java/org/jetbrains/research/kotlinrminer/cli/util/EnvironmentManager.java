@@ -12,10 +12,30 @@ import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmProtoBufUtil;
 import org.jetbrains.kotlin.utils.PathUtil;
 
 import java.io.File;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 public class EnvironmentManager {
+    private static volatile KotlinCoreEnvironment parsingEnvironment;
+
+    /**
+     * Returns the environment shared by all parsers of the process. Creating an environment initializes a large part
+     * of the compiler, so it is created once and kept warm for all parsed files and commits.
+     */
+    public static KotlinCoreEnvironment getParsingEnvironment() {
+        KotlinCoreEnvironment environment = parsingEnvironment;
+        if (environment == null) {
+            synchronized (EnvironmentManager.class) {
+                environment = parsingEnvironment;
+                if (environment == null) {
+                    environment = createKotlinCoreEnvironment(new HashSet<>());
+                    parsingEnvironment = environment;
+                }
+            }
+        }
+        return environment;
+    }
 
     /**
      * Creates KotlinCoreEnvironment with specified classpath.
@@ -14,6 +14,18 @@ public class JsonUtil {
                                   String cloneURL,
                                   String currentCommitId,
                                   List<Refactoring> refactoringsAtRevision) {
+        commitJSON(sb, cloneURL, currentCommitId, refactoringsAtRevision, false);
+    }
+
+    /**
+     * @param declarationsOnly whether the commit was analyzed from its declarations only, in which case the results
+     *                         are marked as partial
+     */
+    public static void commitJSON(StringBuilder sb,
+                                  String cloneURL,
+                                  String currentCommitId,
+                                  List<Refactoring> refactoringsAtRevision,
+                                  boolean declarationsOnly) {
         sb.append("{").append("\n");
         sb.append("\t").append("\"").append("repository").append("\"").append(": ").append("\"").append(
             cloneURL).append("\"").append(",").append("\n");
@@ -22,6 +34,10 @@ public class JsonUtil {
         String url = GitHistoryKotlinRMiner.extractCommitURL(cloneURL, currentCommitId);
         sb.append("\t").append("\"").append("url").append("\"").append(": ").append("\"").append(url).append(
             "\"").append(",").append("\n");
+        if (declarationsOnly) {
+            sb.append("\t").append("\"").append("declarationsOnly").append("\"").append(": ").append("true").append(
+                ",").append("\n");
+        }
         sb.append("\t").append("\"").append("refactorings").append("\"").append(": ");
         sb.append("[");
         int counter = 0;
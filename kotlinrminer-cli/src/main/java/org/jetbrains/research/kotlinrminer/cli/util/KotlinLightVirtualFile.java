@@ -3,18 +3,16 @@ package org.jetbrains.research.kotlinrminer.cli.util;
 import org.jetbrains.kotlin.com.intellij.testFramework.LightVirtualFile;
 import org.jetbrains.kotlin.idea.KotlinLanguage;
 
-import java.io.File;
-import java.io.IOException;
-
 /**
- * Wrapper for VirtualFile that retains path on machine.
+ * In-memory VirtualFile that retains the path of the file in the repository.
+ * The path is only reported, it is never resolved on disk.
  */
 public class KotlinLightVirtualFile extends LightVirtualFile {
     private final String path;
 
-    public KotlinLightVirtualFile(File file, String text) throws IOException {
-        super(file.getName(), KotlinLanguage.INSTANCE, text);
-        this.path = file.getCanonicalPath();
+    public KotlinLightVirtualFile(String path, String text) {
+        super(path.substring(path.lastIndexOf('/') + 1), KotlinLanguage.INSTANCE, text);
+        this.path = path;
     }
 
     @Override
@@ -0,0 +1,98 @@
+package org.jetbrains.research.kotlinrminer.cli.util;
+
+import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
+import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
+import org.jetbrains.kotlin.psi.KtFile;
+
+import java.util.Arrays;
+
+/**
+ * Start offsets and indentations of the lines of a document, computed in a single pass and kept with the document,
+ * so that the line and the column of the locations created for a file are found with a binary search instead of
+ * extracting and scanning the text of the line every time.
+ */
+public class LineTable {
+    private static final Key<LineTable> LINE_TABLE_KEY = Key.create("kotlinrminer.lineTable");
+    private final long modificationStamp;
+    private final int[] lineStarts;
+    private final int[] indentations;
+
+    private LineTable(CharSequence text, long modificationStamp) {
+        this.modificationStamp = modificationStamp;
+        int lineCount = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lineCount++;
+            }
+        }
+        this.lineStarts = new int[lineCount];
+        this.indentations = new int[lineCount];
+        int line = 0;
+        boolean indentation = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                line++;
+                lineStarts[line] = i + 1;
+                indentation = true;
+            } else if (indentation) {
+                if (c == ' ') {
+                    indentations[line]++;
+                } else if (c == '\t') {
+                    indentations[line] += 4;
+                } else {
+                    indentation = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the line table of the document, which is recomputed only when the document has been modified.
+     */
+    public static LineTable of(Document document) {
+        LineTable lineTable = document.getUserData(LINE_TABLE_KEY);
+        if (lineTable == null || lineTable.modificationStamp != document.getModificationStamp()) {
+            lineTable = new LineTable(document.getImmutableCharSequence(), document.getModificationStamp());
+            document.putUserData(LINE_TABLE_KEY, lineTable);
+        }
+        return lineTable;
+    }
+
+    /**
+     * Returns the line table of the file, computed from its text on first use. A file parsed from a part of another
+     * file, padded to the same offsets, uses the line table of the original file attached to it. The table is not
+     * taken from the document of the file: the parsed files are never modified, and a document would keep a copy of
+     * the text and reject files with CRLF line separators.
+     */
+    public static LineTable of(KtFile file) {
+        LineTable lineTable = file.getUserData(LINE_TABLE_KEY);
+        if (lineTable == null) {
+            lineTable = new LineTable(file.getViewProvider().getContents(), 0);
+            file.putUserData(LINE_TABLE_KEY, lineTable);
+        }
+        return lineTable;
+    }
+
+    /**
+     * Resolves the locations of the file with the line table of the file its text was taken from.
+     */
+    public static void attach(KtFile file, LineTable lineTable) {
+        file.putUserData(LINE_TABLE_KEY, lineTable);
+    }
+
+    /**
+     * Returns the 0-based line containing the offset, as {@link Document#getLineNumber(int)}.
+     */
+    public int getLineNumber(int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Returns the width of the leading whitespace of the 0-based line, counting a tab as four spaces.
+     */
+    public int getIndentation(int lineNumber) {
+        return indentations[lineNumber];
+    }
+}
@@ -1,21 +1,50 @@
 package org.jetbrains.research.kotlinrminer.cli.util;
 
 import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
-import org.jetbrains.kotlin.com.intellij.openapi.util.TextRange;
+import org.jetbrains.kotlin.com.intellij.psi.tree.IElementType;
+import org.jetbrains.kotlin.lexer.KotlinLexer;
+import org.jetbrains.kotlin.lexer.KtTokens;
 
 public class PsiUtils {
     public static int countColumn(int lineNumber, Document doc) {
-        final String line =
-            doc.getText(new TextRange(doc.getLineStartOffset(lineNumber), doc.getLineEndOffset(lineNumber)));
-        int count = 0;
-        for (char c : line.toCharArray()) {
-            if (c == ' ')
-                count++;
-            else if (c == '\t')
-                count += 4;
-            else
-                return count;
+        return LineTable.of(doc).getIndentation(lineNumber);
+    }
+
+    /**
+     * Checks with the lexer whether a block contains only comments, so that the block does not need to be parsed.
+     */
+    public static boolean isEmptyBlock(CharSequence blockText) {
+        KotlinLexer lexer = new KotlinLexer();
+        lexer.start(blockText);
+        IElementType tokenType;
+        while ((tokenType = lexer.getTokenType()) != null) {
+            if (tokenType != KtTokens.LBRACE && tokenType != KtTokens.RBRACE && tokenType != KtTokens.SEMICOLON &&
+                !KtTokens.WHITESPACES.contains(tokenType) && !KtTokens.COMMENTS.contains(tokenType)) {
+                return false;
+            }
+            lexer.advance();
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the tokens of a code fragment, ignoring whitespaces and comments.
+     */
+    public static long fingerprint(CharSequence text) {
+        KotlinLexer lexer = new KotlinLexer();
+        lexer.start(text);
+        long hash = 0xcbf29ce484222325L;
+        IElementType tokenType;
+        while ((tokenType = lexer.getTokenType()) != null) {
+            if (!KtTokens.WHITESPACES.contains(tokenType) && !KtTokens.COMMENTS.contains(tokenType)) {
+                for (int i = lexer.getTokenStart(); i < lexer.getTokenEnd(); i++) {
+                    hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+                }
+                //separates the tokens, so that e.g. "a b" and "ab" differ
+                hash = (hash ^ 0xffff) * 0x100000001b3L;
+            }
+            lexer.advance();
         }
-        return count;
+        return hash;
     }
 }
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jetbrains.research.kotlinrminer.cli.HistoryCheckpoint;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the commits recorded by a {@link HistoryCheckpoint} are skipped when resuming.
+ */
+public class TestHistoryCheckpoint {
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("kotlinrminer");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        File checkpointDirectory = directory.toFile();
+        try (HistoryCheckpoint checkpoint = new HistoryCheckpoint(checkpointDirectory, false)) {
+            checkpoint.write("a", "{}");
+            checkpoint.writeFailed("b");
+            checkpoint.write("c", "{}");
+        }
+        try (HistoryCheckpoint checkpoint = new HistoryCheckpoint(checkpointDirectory, true)) {
+            assertTrue(checkpoint.isProcessed("a"));
+            assertTrue(checkpoint.isProcessed("b"));
+            assertTrue(checkpoint.isProcessed("c"));
+            assertFalse(checkpoint.isProcessed("d"));
+            assertEquals(3, checkpoint.getProcessedCommitsCount());
+            assertEquals(Collections.singleton("b"), checkpoint.getFailedCommits());
+            assertEquals("{},\n{}", output(checkpoint));
+        }
+    }
+
+    @Test
+    public void testRestart() throws IOException {
+        File checkpointDirectory = directory.toFile();
+        try (HistoryCheckpoint checkpoint = new HistoryCheckpoint(checkpointDirectory, false)) {
+            checkpoint.write("a", "{}");
+            checkpoint.writeFailed("b");
+        }
+        try (HistoryCheckpoint checkpoint = new HistoryCheckpoint(checkpointDirectory, false)) {
+            assertFalse(checkpoint.isProcessed("a"));
+            assertFalse(checkpoint.isProcessed("b"));
+            assertTrue(checkpoint.getFailedCommits().isEmpty());
+            assertEquals("", output(checkpoint));
+        }
+    }
+
+    @Test
+    public void testIncompleteCheckpointIsDropped() throws IOException {
+        File checkpointDirectory = directory.toFile();
+        try (HistoryCheckpoint checkpoint = new HistoryCheckpoint(checkpointDirectory, false)) {
+            checkpoint.write("a", "{}");
+        }
+        //a checkpoint interrupted while being written
+        Files.write(directory.resolve("checkpoint"), "b\n! c\n".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+        try (HistoryCheckpoint checkpoint = new HistoryCheckpoint(checkpointDirectory, true)) {
+            assertTrue(checkpoint.isProcessed("a"));
+            assertFalse(checkpoint.isProcessed("b"));
+            assertFalse(checkpoint.isProcessed("c"));
+            assertTrue(checkpoint.getFailedCommits().isEmpty());
+            assertEquals("{}", output(checkpoint));
+        }
+    }
+
+    private static String output(HistoryCheckpoint checkpoint) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        checkpoint.copyOutput(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
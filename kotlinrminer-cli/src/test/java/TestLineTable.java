@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
+import org.jetbrains.kotlin.com.intellij.openapi.util.TextRange;
+import org.jetbrains.kotlin.psi.KtPsiFactory;
+import org.jetbrains.research.kotlinrminer.cli.util.EnvironmentManager;
+import org.jetbrains.research.kotlinrminer.cli.util.LineTable;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the lines and the indentations of a {@link LineTable} with the ones computed from the {@link Document}.
+ */
+public class TestLineTable {
+
+    @Test
+    public void testEmptyFile() {
+        assertSameAsDocument("");
+    }
+
+    @Test
+    public void testSingleLine() {
+        assertSameAsDocument("class Foo");
+    }
+
+    @Test
+    public void testTrailingNewline() {
+        assertSameAsDocument("class Foo\n");
+        assertSameAsDocument("\n");
+    }
+
+    @Test
+    public void testEmptyLines() {
+        assertSameAsDocument("x\n\n\n  y");
+    }
+
+    @Test
+    public void testTabs() {
+        assertSameAsDocument("package a\n\n\tclass Foo {\n  \t fun bar() = 1\n   \n}\n");
+        assertSameAsDocument("\t\t\n\t");
+    }
+
+    private static void assertSameAsDocument(String text) {
+        Document document = createDocument(text);
+        LineTable lineTable = LineTable.of(document);
+        for (int offset = 0; offset <= document.getTextLength(); offset++) {
+            int line = document.getLineNumber(offset);
+            assertEquals(line, lineTable.getLineNumber(offset), "line at offset " + offset);
+            assertEquals(indentation(document, line), lineTable.getIndentation(line), "indentation of line " + line);
+        }
+    }
+
+    /**
+     * Counts the leading whitespace of the line in the text of the document, a tab counting as four spaces.
+     */
+    private static int indentation(Document document, int line) {
+        String text = document.getText(new TextRange(document.getLineStartOffset(line),
+            document.getLineEndOffset(line)));
+        int indentation = 0;
+        for (char c : text.toCharArray()) {
+            if (c == ' ') {
+                indentation++;
+            } else if (c == '\t') {
+                indentation += 4;
+            } else {
+                break;
+            }
+        }
+        return indentation;
+    }
+
+    private static Document createDocument(String text) {
+        return new KtPsiFactory(EnvironmentManager.getParsingEnvironment().getProject()).createFile(text)
+            .getViewProvider().getDocument();
+    }
+}
@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jetbrains.kotlin.com.intellij.openapi.editor.Document;
+import org.jetbrains.kotlin.psi.KtClass;
+import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtNamedFunction;
+import org.jetbrains.kotlin.psi.KtPsiFactory;
+import org.jetbrains.research.kotlinrminer.cli.UMLModelPsiReaderCli;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.AbstractCodeFragment;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.CompositeStatementObject;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.LambdaExpressionObject;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.LocationInfo;
+import org.jetbrains.research.kotlinrminer.cli.decomposition.StatementObject;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLClass;
+import org.jetbrains.research.kotlinrminer.cli.uml.UMLOperation;
+import org.jetbrains.research.kotlinrminer.cli.util.EnvironmentManager;
+import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the lines and the columns of the locations, resolved from their offsets, with the ones computed from
+ * the {@link Document} of the file, including the locations of the statements of bodies built on demand.
+ */
+public class TestLocationInfo {
+    private static final String FILE_PATH = "src/a/Foo.kt";
+    private static final String TEXT = "package a\n" +
+        "\n" +
+        "class Foo {\n" +
+        "\tfun f(x: Int, s: String?): Int {\n" +
+        "        val y = x + 1\n" +
+        "        if (y > 2 && s != null) {\n" +
+        "            println(\"v\" + y)\n" +
+        "        }\n" +
+        "        val z = listOf(1, 2).map { v ->\n" +
+        "\t\tv * y\n" +
+        "        }\n" +
+        "        return y\n" +
+        "    }\n" +
+        "\n" +
+        "    fun g() = run { h(1) }\n" +
+        "}\n";
+
+    @Test
+    public void testDeclarationLocations() {
+        KtFile ktFile = createFile();
+        Document document = ktFile.getViewProvider().getDocument();
+        for (KtNamedFunction function : ((KtClass) ktFile.getDeclarations().get(0)).getBody().getFunctions()) {
+            assertSameAsDocument(document,
+                new LocationInfo(ktFile, FILE_PATH, function, CodeElementType.METHOD_DECLARATION));
+        }
+    }
+
+    @Test
+    public void testStatementLocations() throws Exception {
+        Document document = createFile().getViewProvider().getDocument();
+        UMLModelPsiReaderCli reader = new UMLModelPsiReaderCli(new HashSet<>(Arrays.asList("src", "src/a")));
+        reader.parseFiles(new HashMap<>(Collections.singletonMap(FILE_PATH, TEXT)));
+        List<AbstractCodeFragment> fragments = new ArrayList<>();
+        for (UMLClass umlClass : reader.getUmlModel().getClassList()) {
+            for (UMLOperation operation : umlClass.getOperations()) {
+                if (operation.getBody() != null) {
+                    collectFragments(operation.getBody().getCompositeStatement(), fragments);
+                }
+            }
+        }
+        assertFalse(fragments.isEmpty());
+        for (AbstractCodeFragment fragment : fragments) {
+            LocationInfo locationInfo = fragment.getLocationInfo();
+            if (fragment instanceof StatementObject) {
+                assertEquals(fragment.getString().trim(),
+                    TEXT.substring(locationInfo.getStartOffset(), locationInfo.getEndOffset()).trim());
+            }
+            assertSameAsDocument(document, locationInfo);
+        }
+    }
+
+    @Test
+    public void testEquality() {
+        KtFile ktFile = createFile();
+        KtNamedFunction function = ((KtClass) ktFile.getDeclarations().get(0)).getBody()
+            .getFunctions().get(0);
+        LocationInfo locationInfo = new LocationInfo(ktFile, FILE_PATH, function, CodeElementType.METHOD_DECLARATION);
+        assertEquals(locationInfo,
+            new LocationInfo(createFile(), FILE_PATH, function, CodeElementType.METHOD_DECLARATION));
+        assertNotEquals(locationInfo,
+            new LocationInfo(ktFile, "src/a/Bar.kt", function, CodeElementType.METHOD_DECLARATION));
+        KtFile shiftedFile = new KtPsiFactory(EnvironmentManager.getParsingEnvironment().getProject())
+            .createFile("\n" + TEXT.substring(0, TEXT.length() - 1));
+        assertNotEquals(locationInfo,
+            new LocationInfo(shiftedFile, FILE_PATH, function, CodeElementType.METHOD_DECLARATION));
+    }
+
+    private static void collectFragments(CompositeStatementObject composite, List<AbstractCodeFragment> fragments) {
+        List<AbstractCodeFragment> statementFragments = new ArrayList<>(composite.getLeaves());
+        statementFragments.addAll(composite.getInnerNodes());
+        for (CompositeStatementObject innerNode : composite.getInnerNodes()) {
+            statementFragments.addAll(innerNode.getExpressions());
+        }
+        for (AbstractCodeFragment fragment : statementFragments) {
+            fragments.add(fragment);
+            for (LambdaExpressionObject lambda : fragment.getLambdas()) {
+                if (lambda.getBody() != null) {
+                    collectFragments(lambda.getBody().getCompositeStatement(), fragments);
+                }
+            }
+        }
+    }
+
+    private static void assertSameAsDocument(Document document, LocationInfo locationInfo) {
+        int startLine = document.getLineNumber(locationInfo.getStartOffset());
+        int endLine = document.getLineNumber(locationInfo.getEndOffset());
+        assertEquals(startLine + 1, locationInfo.getStartLine());
+        assertEquals(endLine + 1, locationInfo.getEndLine());
+        assertEquals(indentation(document, startLine) + 1, locationInfo.getStartColumn());
+        assertEquals(indentation(document, endLine) + 1, locationInfo.getEndColumn());
+    }
+
+    private static int indentation(Document document, int line) {
+        int indentation = 0;
+        CharSequence text = document.getImmutableCharSequence();
+        for (int i = document.getLineStartOffset(line); i < document.getLineEndOffset(line); i++) {
+            char c = text.charAt(i);
+            if (c == ' ') {
+                indentation++;
+            } else if (c == '\t') {
+                indentation += 4;
+            } else {
+                break;
+            }
+        }
+        return indentation;
+    }
+
+    private static KtFile createFile() {
+        return new KtPsiFactory(EnvironmentManager.getParsingEnvironment().getProject()).createFile(TEXT);
+    }
+}
@@ -0,0 +1,140 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.jetbrains.research.kotlinrminer.cli.ShardedHistoryMiner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the split of a commit range into shards on a local repository with a linear history, and on one with a
+ * merged side branch.
+ */
+public class TestShardedHistoryMiner {
+    private Path directory;
+    private File repositoryDirectory;
+    private final List<String> commits = new ArrayList<>();
+
+    @BeforeEach
+    public void createRepository() throws Exception {
+        directory = Files.createTempDirectory("kotlinrminer");
+        repositoryDirectory = directory.resolve("repository").toFile();
+        try (Git git = Git.init().setDirectory(repositoryDirectory).call()) {
+            //the results link the commits to the remote repository
+            StoredConfig config = git.getRepository().getConfig();
+            config.setString("remote", "origin", "url", "https://github.com/a/b.git");
+            config.save();
+            for (int i = 0; i < 4; i++) {
+                commits.add(git.commit().setMessage("commit " + i).setAllowEmpty(true).call().getName());
+            }
+        }
+    }
+
+    @AfterEach
+    public void deleteRepository() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyRange() throws Exception {
+        ShardedHistoryMiner miner = new ShardedHistoryMiner(directory.resolve("work").toFile());
+        assertTrue(miner.plan(repositoryDirectory.getPath(), commits.get(3), commits.get(3), 4).isEmpty());
+        assertTrue(miner.getIncompleteShards().isEmpty());
+    }
+
+    @Test
+    public void testEndNotAfterStart() throws Exception {
+        ShardedHistoryMiner miner = new ShardedHistoryMiner(directory.resolve("work").toFile());
+        assertTrue(miner.plan(repositoryDirectory.getPath(), commits.get(3), commits.get(1), 2).isEmpty());
+    }
+
+    @Test
+    public void testShardsPartitionRange() throws Exception {
+        ShardedHistoryMiner miner = new ShardedHistoryMiner(directory.resolve("work").toFile());
+        List<ShardedHistoryMiner.Shard> shards = miner.plan(repositoryDirectory.getPath(), commits.get(0),
+            commits.get(3), 2);
+        assertEquals(2, shards.size());
+        assertEquals(commits.get(0), shards.get(0).getStartCommitId());
+        assertEquals(commits.get(1), shards.get(0).getEndCommitId());
+        assertEquals(commits.get(1), shards.get(1).getStartCommitId());
+        assertEquals(commits.get(3), shards.get(1).getEndCommitId());
+    }
+
+    @Test
+    public void testMoreShardsThanCommits() throws Exception {
+        ShardedHistoryMiner miner = new ShardedHistoryMiner(directory.resolve("work").toFile());
+        List<ShardedHistoryMiner.Shard> shards = miner.plan(repositoryDirectory.getPath(), commits.get(1),
+            commits.get(3), 8);
+        assertEquals(2, shards.size());
+        assertEquals(commits.get(2), shards.get(0).getEndCommitId());
+        assertEquals(commits.get(3), shards.get(1).getEndCommitId());
+    }
+
+    @Test
+    public void testPlanReadsExistingManifest() throws Exception {
+        ShardedHistoryMiner miner = new ShardedHistoryMiner(directory.resolve("work").toFile());
+        miner.plan(repositoryDirectory.getPath(), commits.get(0), commits.get(3), 3);
+        List<ShardedHistoryMiner.Shard> shards = miner.plan(repositoryDirectory.getPath(), commits.get(0),
+            commits.get(3), 1);
+        assertEquals(3, shards.size());
+        assertEquals(3, miner.getIncompleteShards().size());
+    }
+
+    @Test
+    public void testMergedStartIsExcluded() throws Exception {
+        //base - m1 - m2 - merge - m3 on master, base - s1 - s2 on side, mined from s1 to m3
+        String s1;
+        String s2;
+        String m1;
+        String m2;
+        String m3;
+        try (Git git = Git.open(repositoryDirectory)) {
+            git.checkout().setCreateBranch(true).setName("side").setStartPoint(commits.get(3)).call();
+            s1 = git.commit().setMessage("s1").setAllowEmpty(true).call().getName();
+            s2 = git.commit().setMessage("s2").setAllowEmpty(true).call().getName();
+            git.checkout().setName("master").call();
+            m1 = git.commit().setMessage("m1").setAllowEmpty(true).call().getName();
+            m2 = git.commit().setMessage("m2").setAllowEmpty(true).call().getName();
+            MergeResult merge = git.merge().include(ObjectId.fromString(s2))
+                .setFastForward(MergeCommand.FastForwardMode.NO_FF).call();
+            assertTrue(merge.getMergeStatus().isSuccessful());
+            m3 = git.commit().setMessage("m3").setAllowEmpty(true).call().getName();
+        }
+        ShardedHistoryMiner miner = new ShardedHistoryMiner(directory.resolve("work").toFile());
+        List<ShardedHistoryMiner.Shard> shards = miner.plan(repositoryDirectory.getPath(), s1, m3, 2);
+        assertEquals(2, shards.size());
+        assertEquals(m2, shards.get(0).getEndCommitId());
+        assertTrue(miner.work());
+        assertTrue(miner.getFailedCommits().isEmpty());
+        String result = new String(Files.readAllBytes(miner.merge().toPath()), StandardCharsets.UTF_8);
+        for (String commitId : Arrays.asList(m1, m2, s2, m3)) {
+            assertTrue(result.contains(commitId), commitId);
+        }
+        for (String commitId : Arrays.asList(s1, commits.get(3))) {
+            assertFalse(result.contains(commitId), commitId);
+        }
+    }
+}
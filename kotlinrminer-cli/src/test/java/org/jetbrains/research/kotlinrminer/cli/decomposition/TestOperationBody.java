@@ -0,0 +1,163 @@
+package org.jetbrains.research.kotlinrminer.cli.decomposition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.kotlin.com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.kotlin.psi.KtBlockExpression;
+import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtLambdaExpression;
+import org.jetbrains.kotlin.psi.KtNamedFunction;
+import org.jetbrains.research.kotlinrminer.cli.UMLModelPsiReaderCli;
+import org.jetbrains.research.kotlinrminer.cli.util.EnvironmentManager;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the statements of bodies reparsed on demand with the ones built eagerly from the original file.
+ */
+public class TestOperationBody {
+    private static final String FILE_PATH = "src/a/Foo.kt";
+
+    @Test
+    public void testComments() {
+        assertSameAsEager("package a\n" +
+            "\n" +
+            "/** doc */\n" +
+            "fun f(x: Int) /* before */ { // first\n" +
+            "    /* leading */\n" +
+            "    val y = x + 1 // trailing\n" +
+            "    // last\n" +
+            "}\n" +
+            "fun g() = listOf(1).map { /* leading */ v -> // after arrow\n" +
+            "    // comment\n" +
+            "    v + 1\n" +
+            "}\n");
+    }
+
+    @Test
+    public void testAnnotations() {
+        assertSameAsEager("package a\n" +
+            "\n" +
+            "class Foo {\n" +
+            "    @Suppress(\"UNUSED\")\n" +
+            "    @JvmName(\"g\")\n" +
+            "    fun f(@Suppress(\"x\") x: Int): Int {\n" +
+            "        @Suppress(\"NAME_SHADOWING\") val x = x\n" +
+            "        val h = @Suppress(\"y\") { y: Int -> y + x }\n" +
+            "        return h(x)\n" +
+            "    }\n" +
+            "}\n");
+    }
+
+    @Test
+    public void testLabels() {
+        assertSameAsEager("package a\n" +
+            "\n" +
+            "fun f(items: List<Int>) {\n" +
+            "    outer@ for (i in items) {\n" +
+            "        inner@ while (true) {\n" +
+            "            if (i > 0) break@outer else continue@inner\n" +
+            "        }\n" +
+            "    }\n" +
+            "    items.forEach each@{\n" +
+            "        if (it == 0) return@each\n" +
+            "        run nested@{ println(it) }\n" +
+            "    }\n" +
+            "}\n");
+    }
+
+    @Test
+    public void testCrlf() {
+        assertSameAsEager(("package a\n" +
+            "\n" +
+            "class Foo {\n" +
+            "\tfun f(x: Int): Int {\n" +
+            "\t\tval y = x.let {\n" +
+            "\t\t\tit * 2\n" +
+            "\t\t}\n" +
+            "\t\treturn y\n" +
+            "\t}\n" +
+            "}\n").replace("\n", "\r\n"));
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        assertSameAsEager("package a\n" +
+            "\n" +
+            "fun f() { val x = ) }\n" +
+            "val v = run { x -> g( }\n" +
+            "fun h() { \"abc }\n");
+    }
+
+    @Test
+    public void testBodyAtStartOfFile() {
+        assertSameAsEager("fun f(){ g() }\nval v={ h() }\n");
+    }
+
+    private static void assertSameAsEager(String text) {
+        KtFile ktFile = (KtFile) new UMLModelPsiReaderCli(Collections.emptySet())
+            .buildPsiFile(FILE_PATH, EnvironmentManager.getParsingEnvironment(), text);
+        List<KtBlockExpression> bodies = new ArrayList<>();
+        for (KtNamedFunction function : PsiTreeUtil.collectElementsOfType(ktFile, KtNamedFunction.class)) {
+            if (function.getBodyBlockExpression() != null) {
+                bodies.add(function.getBodyBlockExpression());
+            }
+        }
+        for (KtLambdaExpression lambda : PsiTreeUtil.collectElementsOfType(ktFile, KtLambdaExpression.class)) {
+            bodies.add(lambda.getBodyExpression());
+        }
+        assertFalse(bodies.isEmpty());
+        for (KtBlockExpression body : bodies) {
+            assertSameStatements(new OperationBody(ktFile, FILE_PATH, body, false),
+                new OperationBody(ktFile, FILE_PATH, body));
+        }
+    }
+
+    private static void assertSameStatements(OperationBody expected, OperationBody actual) {
+        assertEquals(expected.stringRepresentation(), actual.stringRepresentation());
+        List<AbstractCodeFragment> expectedFragments = fragments(expected.getCompositeStatement());
+        List<AbstractCodeFragment> actualFragments = fragments(actual.getCompositeStatement());
+        assertEquals(expectedFragments.size(), actualFragments.size());
+        for (int i = 0; i < expectedFragments.size(); i++) {
+            assertSameLocation(expectedFragments.get(i).getLocationInfo(), actualFragments.get(i).getLocationInfo());
+            assertEquals(expectedFragments.get(i).getVariables(), actualFragments.get(i).getVariables());
+        }
+        List<LambdaExpressionObject> expectedLambdas = expected.getAllLambdas();
+        List<LambdaExpressionObject> actualLambdas = actual.getAllLambdas();
+        assertEquals(expectedLambdas.size(), actualLambdas.size());
+        for (int i = 0; i < expectedLambdas.size(); i++) {
+            assertSameLocation(expectedLambdas.get(i).getLocationInfo(), actualLambdas.get(i).getLocationInfo());
+            assertNotNull(actualLambdas.get(i).getBody());
+            assertSameStatements(expectedLambdas.get(i).getBody(), actualLambdas.get(i).getBody());
+        }
+    }
+
+    private static void assertSameLocation(LocationInfo expected, LocationInfo actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getCodeElementType(), actual.getCodeElementType());
+        assertEquals(expected.getStartLine(), actual.getStartLine());
+        assertEquals(expected.getStartColumn(), actual.getStartColumn());
+        assertEquals(expected.getEndLine(), actual.getEndLine());
+        assertEquals(expected.getEndColumn(), actual.getEndColumn());
+    }
+
+    private static List<AbstractCodeFragment> fragments(CompositeStatementObject composite) {
+        List<AbstractCodeFragment> fragments = new ArrayList<>();
+        fragments.add(composite);
+        for (AbstractStatement statement : composite.getStatements()) {
+            if (statement instanceof CompositeStatementObject) {
+                fragments.addAll(fragments((CompositeStatementObject) statement));
+            } else {
+                fragments.add(statement);
+            }
+        }
+        fragments.addAll(composite.getExpressions());
+        return fragments;
+    }
+}
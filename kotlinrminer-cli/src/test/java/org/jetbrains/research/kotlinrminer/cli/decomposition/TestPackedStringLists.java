@@ -0,0 +1,65 @@
+package org.jetbrains.research.kotlinrminer.cli.decomposition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the lists packed in a {@link PackedStringLists} are sliced back as they were given.
+ */
+public class TestPackedStringLists {
+
+    @Test
+    public void testListsAreSliced() {
+        List<String> first = Arrays.asList("a", "b");
+        List<String> second = Collections.emptyList();
+        List<String> third = Collections.singletonList("c");
+        List<String> fourth = Arrays.asList("d", "e", "f");
+        PackedStringLists lists = PackedStringLists.pack(first, second, third, fourth);
+        assertEquals(first, lists.get(0));
+        assertEquals(second, lists.get(1));
+        assertEquals(third, lists.get(2));
+        assertEquals(fourth, lists.get(3));
+    }
+
+    @Test
+    public void testEmptyListsAtBothEnds() {
+        List<String> middle = Arrays.asList("a", "b");
+        PackedStringLists lists = PackedStringLists.pack(Collections.emptyList(), middle, Collections.emptyList());
+        assertEquals(Collections.emptyList(), lists.get(0));
+        assertEquals(middle, lists.get(1));
+        assertEquals(Collections.emptyList(), lists.get(2));
+    }
+
+    @Test
+    public void testAllListsEmpty() {
+        PackedStringLists lists = PackedStringLists.pack(Collections.emptyList(), Collections.emptyList());
+        assertSame(PackedStringLists.pack(Collections.emptyList()), lists);
+        assertEquals(Collections.emptyList(), lists.get(0));
+        assertEquals(Collections.emptyList(), lists.get(1));
+    }
+
+    @Test
+    public void testListsAreCopied() {
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        PackedStringLists lists = PackedStringLists.pack(list);
+        list.clear();
+        assertEquals(Arrays.asList("a", "b"), lists.get(0));
+    }
+
+    @Test
+    public void testIndexOutsideOfSlice() {
+        PackedStringLists lists = PackedStringLists.pack(Arrays.asList("a", "b"), Collections.singletonList("c"));
+        List<String> slice = lists.get(1);
+        assertEquals(1, slice.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.get(-1));
+    }
+}
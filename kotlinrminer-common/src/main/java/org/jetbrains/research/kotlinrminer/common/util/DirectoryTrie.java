@@ -0,0 +1,147 @@
+package org.jetbrains.research.kotlinrminer.common.util;
+
+import java.util.*;
+
+/**
+ * Set of the directories containing a group of files, including all their parent directories, stored as a trie of
+ * path segments. Every directory counts the files below it, so that files can be added and removed incrementally:
+ * a directory is removed together with its last file.
+ */
+public class DirectoryTrie extends AbstractSet<String> {
+    private final Node root;
+    private int size;
+
+    public DirectoryTrie() {
+        this.root = new Node();
+    }
+
+    private DirectoryTrie(DirectoryTrie other) {
+        this.root = other.root.copy();
+        this.size = other.size;
+    }
+
+    public DirectoryTrie copy() {
+        return new DirectoryTrie(this);
+    }
+
+    /**
+     * Adds the directories of the given file path, e.g. {@code a/b} and {@code a} for {@code a/b/File.kt}.
+     */
+    public void addFile(String filePath) {
+        Node node = root;
+        int start = 0;
+        int end;
+        while ((end = filePath.indexOf('/', start)) >= 0) {
+            String segment = filePath.substring(start, end);
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+                size++;
+            }
+            child.fileCount++;
+            node = child;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Removes a file previously added with {@link #addFile(String)}, and the directories left without files.
+     */
+    public void removeFile(String filePath) {
+        int separatorIndex = filePath.lastIndexOf('/');
+        if (separatorIndex < 0 || findDirectory(filePath, separatorIndex) == null) {
+            return;
+        }
+        Node node = root;
+        int start = 0;
+        int end;
+        while ((end = filePath.indexOf('/', start)) >= 0) {
+            String segment = filePath.substring(start, end);
+            Node child = node.children.get(segment);
+            if (--child.fileCount == 0) {
+                node.children.remove(segment);
+                size -= child.directoryCount() + 1;
+                return;
+            }
+            node = child;
+            start = end + 1;
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        String directory = (String) o;
+        return findDirectory(directory, directory.length()) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        List<String> directories = new ArrayList<>(size);
+        Deque<Map.Entry<String, Node>> stack = new ArrayDeque<>();
+        pushChildren(stack, "", root);
+        while (!stack.isEmpty()) {
+            Map.Entry<String, Node> entry = stack.pop();
+            directories.add(entry.getKey());
+            pushChildren(stack, entry.getKey() + "/", entry.getValue());
+        }
+        return Collections.unmodifiableList(directories).iterator();
+    }
+
+    private static void pushChildren(Deque<Map.Entry<String, Node>> stack, String prefix, Node node) {
+        List<Map.Entry<String, Node>> children = new ArrayList<>(node.children.size());
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            children.add(new AbstractMap.SimpleEntry<>(prefix + child.getKey(), child.getValue()));
+        }
+        for (int i = children.size() - 1; i >= 0; i--) {
+            stack.push(children.get(i));
+        }
+    }
+
+    /**
+     * Returns the node of the directory {@code path.substring(0, length)}, or null if it is not in the set.
+     */
+    private Node findDirectory(String path, int length) {
+        Node node = root;
+        int start = 0;
+        while (node != null && start <= length) {
+            int end = path.indexOf('/', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            node = node.children.get(path.substring(start, end));
+            start = end + 1;
+        }
+        return node;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private int fileCount;
+
+        private Node copy() {
+            Node copy = new Node();
+            copy.fileCount = fileCount;
+            for (Map.Entry<String, Node> child : children.entrySet()) {
+                copy.children.put(child.getKey(), child.getValue().copy());
+            }
+            return copy;
+        }
+
+        private int directoryCount() {
+            int count = 0;
+            for (Node child : children.values()) {
+                count += child.directoryCount() + 1;
+            }
+            return count;
+        }
+    }
+}
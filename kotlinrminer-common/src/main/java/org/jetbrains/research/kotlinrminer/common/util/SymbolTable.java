@@ -0,0 +1,50 @@
+package org.jetbrains.research.kotlinrminer.common.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the identifiers and type names extracted from the parsed files. The same names
+ * occur in thousands of statements of both models of a commit, and interning them keeps a single copy of each, so
+ * that equality checks between them mostly succeed on the reference comparison of {@link String#equals}.
+ * <p>
+ * The table is shared by all the models of the process. When it exceeds its size limit, set with the system
+ * property {@code kotlinrminer.symbolTableSize}, it is cleared: the strings interned before stay valid and only
+ * stop being shared with the strings interned after.
+ */
+public final class SymbolTable {
+    private static final int DEFAULT_MAX_SIZE = 1 << 20;
+    private static final SymbolTable SHARED = new SymbolTable(Integer.getInteger("kotlinrminer.symbolTableSize",
+                                                                                 DEFAULT_MAX_SIZE));
+    private final ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    private SymbolTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Interns an identifier or a type name in the shared table. Other texts, e.g. expressions, are rarely repeated
+     * and should not be interned.
+     */
+    public static String symbol(String value) {
+        return SHARED.intern(value);
+    }
+
+    /**
+     * Returns the canonical instance of the string, which is the string itself if it was not interned yet.
+     */
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String symbol = symbols.get(value);
+        if (symbol != null) {
+            return symbol;
+        }
+        if (symbols.size() >= maxSize) {
+            symbols.clear();
+        }
+        symbol = symbols.putIfAbsent(value, value);
+        return symbol != null ? symbol : value;
+    }
+}
@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.jetbrains.research.kotlinrminer.common.util.DirectoryTrie;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares a {@link DirectoryTrie} with the directories computed from the file paths with substrings.
+ */
+public class TestDirectoryTrie {
+    private static final List<String> FILES = Arrays.asList(
+        "src/main/kotlin/a/A.kt",
+        "src/main/kotlin/a/b/B.kt",
+        "src/main/kotlin/a/b/C.kt",
+        "src/test/kotlin/a/ATest.kt",
+        "Root.kt",
+        "lib/src/L.kt",
+        "src/main/kotlin/ab/D.kt");
+
+    @Test
+    public void testAddedFiles() {
+        DirectoryTrie trie = new DirectoryTrie();
+        FILES.forEach(trie::addFile);
+        assertEquals(directoriesOf(FILES), new LinkedHashSet<>(trie));
+        assertEquals(directoriesOf(FILES).size(), trie.size());
+    }
+
+    @Test
+    public void testContains() {
+        DirectoryTrie trie = new DirectoryTrie();
+        FILES.forEach(trie::addFile);
+        assertTrue(trie.contains("src"));
+        assertTrue(trie.contains("src/main/kotlin/a/b"));
+        assertFalse(trie.contains("src/main/kotlin/a/b/B.kt"));
+        assertFalse(trie.contains("src/main/kot"));
+        assertFalse(trie.contains("main"));
+        assertFalse(trie.contains(""));
+        assertFalse(trie.contains("src/"));
+    }
+
+    @Test
+    public void testRemovedFiles() {
+        DirectoryTrie trie = new DirectoryTrie();
+        FILES.forEach(trie::addFile);
+        List<String> files = new ArrayList<>(FILES);
+        for (String file : FILES) {
+            trie.removeFile(file);
+            files.remove(file);
+            assertEquals(directoriesOf(files), new LinkedHashSet<>(trie));
+            assertEquals(directoriesOf(files).size(), trie.size());
+        }
+    }
+
+    @Test
+    public void testRemovedUnknownFile() {
+        DirectoryTrie trie = new DirectoryTrie();
+        FILES.forEach(trie::addFile);
+        trie.removeFile("src/main/kotlin/c/E.kt");
+        trie.removeFile("E.kt");
+        assertEquals(directoriesOf(FILES), new LinkedHashSet<>(trie));
+    }
+
+    @Test
+    public void testRandomChanges() {
+        Random random = new Random(42);
+        DirectoryTrie trie = new DirectoryTrie();
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (!files.isEmpty() && random.nextInt(3) == 0) {
+                trie.removeFile(files.remove(random.nextInt(files.size())));
+            } else {
+                StringBuilder file = new StringBuilder();
+                for (int depth = random.nextInt(4); depth > 0; depth--) {
+                    file.append((char) ('a' + random.nextInt(3))).append('/');
+                }
+                file.append("F").append(i).append(".kt");
+                files.add(file.toString());
+                trie.addFile(file.toString());
+            }
+            assertEquals(directoriesOf(files), new LinkedHashSet<>(trie));
+        }
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        DirectoryTrie trie = new DirectoryTrie();
+        FILES.forEach(trie::addFile);
+        DirectoryTrie copy = trie.copy();
+        copy.removeFile("lib/src/L.kt");
+        copy.addFile("other/O.kt");
+        assertEquals(directoriesOf(FILES), new LinkedHashSet<>(trie));
+        assertTrue(copy.contains("other"));
+        assertFalse(copy.contains("lib"));
+    }
+
+    /**
+     * Returns the directories of the files and all their parent directories, as computed before the trie.
+     */
+    private static Set<String> directoriesOf(Collection<String> files) {
+        Set<String> directories = new LinkedHashSet<>();
+        for (String file : files) {
+            int separatorIndex = file.lastIndexOf('/');
+            while (separatorIndex > 0 && directories.add(file.substring(0, separatorIndex))) {
+                separatorIndex = file.lastIndexOf('/', separatorIndex - 1);
+            }
+        }
+        return directories;
+    }
+}
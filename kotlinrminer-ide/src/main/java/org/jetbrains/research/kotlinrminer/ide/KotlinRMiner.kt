@@ -4,6 +4,7 @@ import com.intellij.openapi.project.Project
 import com.intellij.openapi.vcs.changes.Change
 import com.intellij.openapi.vcs.changes.ChangesUtil
 import org.jetbrains.research.kotlinrminer.common.RefactoringType
+import org.jetbrains.research.kotlinrminer.common.util.DirectoryTrie
 import org.jetbrains.research.kotlinrminer.ide.uml.UMLModel
 
 object KotlinRMiner {
@@ -17,8 +18,8 @@ object KotlinRMiner {
 
         preprocessChanges(changes, filePathsBefore, filePathsCurrent, renamedFilesHint)
 
-        val repositoryDirectoriesBefore = linkedSetOf<String>()
-        val repositoryDirectoriesCurrent = linkedSetOf<String>()
+        val repositoryDirectoriesBefore = DirectoryTrie()
+        val repositoryDirectoriesCurrent = DirectoryTrie()
         val fileContentsBefore = linkedMapOf<String, String>()
         val fileContentsCurrent = linkedMapOf<String, String>()
 
@@ -72,24 +73,19 @@ object KotlinRMiner {
         changes: List<Change>,
         filePaths: List<String>,
         fileContents: MutableMap<String, String>,
-        repositoryDirectories: MutableSet<String>
+        repositoryDirectories: DirectoryTrie
     ) {
+        val filePathSet = filePaths.toHashSet()
         for (change in changes) {
             val revision =
                 (if (type == RevisionType.BEFORE) change.beforeRevision else change.afterRevision) ?: continue
             val pathString = ChangesUtil.getFilePath(change).path
-            if (filePaths.contains(pathString)) {
+            if (pathString in filePathSet) {
                 fileContents[pathString] = ChangesUtil.loadContentRevision(revision).toString(Charsets.UTF_8)
             }
-            if (pathString.endsWith(".kt") && pathString.contains("/")) {
-                val directory = pathString.substring(0, pathString.lastIndexOf("/"))
-                repositoryDirectories.add(directory)
-                //include sub-directories
-                var subDirectory = directory
-                while (subDirectory.contains("/")) {
-                    subDirectory = subDirectory.substring(0, subDirectory.lastIndexOf("/"))
-                    repositoryDirectories.add(subDirectory)
-                }
+            if (isKotlinFile(pathString)) {
+                //includes sub-directories
+                repositoryDirectories.addFile(pathString)
             }
         }
     }
@@ -1,5 +1,6 @@
 package org.jetbrains.research.kotlinrminer.ide.decomposition;
 
+import org.jetbrains.research.kotlinrminer.common.util.SymbolTable;
 import org.jetbrains.research.kotlinrminer.ide.uml.UMLType;
 
 import java.util.regex.Pattern;
@@ -12,8 +13,8 @@ public class LeafType extends UMLType {
             Pattern.compile("(?<!(^|[A-Z]))(?=[A-Z])|(?<!^)(?=[A-Z][a-z])");
 
     public LeafType(String type) {
-        this.classType = type;
-        this.nonQualifiedClassType = simpleNameOf(type);
+        this.classType = SymbolTable.symbol(type);
+        this.nonQualifiedClassType = SymbolTable.symbol(simpleNameOf(type));
     }
 
     @Override
@@ -7,21 +7,18 @@ import org.jetbrains.kotlin.psi.KtElement;
 import org.jetbrains.kotlin.psi.KtFile;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 import org.jetbrains.research.kotlinrminer.ide.diff.CodeRange;
-import org.jetbrains.research.kotlinrminer.ide.util.PsiUtils;
+import org.jetbrains.research.kotlinrminer.ide.util.LineTable;
 
 /**
- * Provides an information about the element's location in the file.
+ * Provides an information about the element's location in the file. Only the offsets are stored, the lines and
+ * the columns are resolved on demand from the line table of the file, shared by all its locations.
  */
 public class LocationInfo {
     private final String filePath;
+    private final LineTable lineTable;
     private final int startOffset;
     private final int endOffset;
-    private final int length;
-    private final int startLine;
-    private final int endLine;
     private final CodeElementType codeElementType;
-    private final int startColumn;
-    private final int endColumn;
 
     public LocationInfo(@NotNull KtFile ktFile, @NotNull String filePath, @NotNull KtElement node,
                         @NotNull CodeElementType codeElementType) {
@@ -29,22 +26,10 @@ public class LocationInfo {
         this.codeElementType = codeElementType;
         TextRange range = node.getTextRange();
         this.startOffset = range.getStartOffset();
-        this.length = range.getLength();
         this.endOffset = range.getEndOffset();
 
         Document document = ktFile.getViewProvider().getDocument();
-
-        if (document != null) {
-            this.startLine = document.getLineNumber(startOffset) + 1;
-            this.endLine = document.getLineNumber(endOffset) + 1;
-            this.startColumn = PsiUtils.countColumn(startLine - 1, document) + 1;
-            this.endColumn = PsiUtils.countColumn(endLine - 1, document) + 1;
-        } else {
-            this.startLine = 0;
-            this.endLine = 0;
-            this.startColumn = 0;
-            this.endColumn = 0;
-        }
+        this.lineTable = document != null ? LineTable.of(document) : null;
     }
 
     public String getFilePath() {
@@ -60,23 +45,23 @@ public class LocationInfo {
     }
 
     public int getLength() {
-        return length;
+        return endOffset - startOffset;
     }
 
     public int getStartLine() {
-        return startLine;
+        return lineTable != null ? lineTable.getLineNumber(startOffset) + 1 : 0;
     }
 
     public int getStartColumn() {
-        return startColumn;
+        return lineTable != null ? lineTable.getIndentation(getStartLine() - 1) + 1 : 0;
     }
 
     public int getEndLine() {
-        return endLine;
+        return lineTable != null ? lineTable.getLineNumber(endOffset) + 1 : 0;
     }
 
     public int getEndColumn() {
-        return endColumn;
+        return lineTable != null ? lineTable.getIndentation(getEndLine() - 1) + 1 : 0;
     }
 
     public CodeElementType getCodeElementType() {
@@ -95,17 +80,16 @@ public class LocationInfo {
             this.endOffset >= other.endOffset;
     }
 
+    /**
+     * Lines and columns are derived from the offsets, so they are compared only for locations of different
+     * versions of the same file.
+     */
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + endColumn;
-        result = prime * result + endLine;
         result = prime * result + endOffset;
         result = prime * result + ((filePath == null) ? 0 : filePath.hashCode());
-        result = prime * result + length;
-        result = prime * result + startColumn;
-        result = prime * result + startLine;
         result = prime * result + startOffset;
         return result;
     }
@@ -122,13 +106,10 @@ public class LocationInfo {
             return false;
         }
         LocationInfo other = (LocationInfo) obj;
-        if (endColumn != other.endColumn) {
-            return false;
-        }
-        if (endLine != other.endLine) {
+        if (endOffset != other.endOffset) {
             return false;
         }
-        if (endOffset != other.endOffset) {
+        if (startOffset != other.startOffset) {
             return false;
         }
         if (filePath == null) {
@@ -138,15 +119,10 @@ public class LocationInfo {
         } else if (!filePath.equals(other.filePath)) {
             return false;
         }
-        if (length != other.length) {
-            return false;
-        }
-        if (startColumn != other.startColumn) {
-            return false;
-        }
-        if (startLine != other.startLine) {
-            return false;
+        if (lineTable == other.lineTable) {
+            return true;
         }
-        return startOffset == other.startOffset;
+        return getStartLine() == other.getStartLine() && getEndLine() == other.getEndLine() &&
+            getStartColumn() == other.getStartColumn() && getEndColumn() == other.getEndColumn();
     }
 }
@@ -1,6 +1,7 @@
 package org.jetbrains.research.kotlinrminer.ide.decomposition;
 
 import org.jetbrains.kotlin.psi.*;
+import org.jetbrains.research.kotlinrminer.ide.util.PsiUtils;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 
 import java.util.ArrayList;
@@ -11,6 +12,7 @@ import java.util.Set;
 public class OperationBody {
 
     private final CompositeStatementObject compositeStatement;
+    private final long fingerprint;
 
     public OperationBody(KtFile cu, String filePath, KtBlockExpression methodBody) {
         this.compositeStatement = new CompositeStatementObject(cu, filePath, methodBody, 0, CodeElementType.BLOCK);
@@ -18,6 +20,15 @@ public class OperationBody {
         for (KtExpression statement : statements) {
             processStatement(cu, filePath, compositeStatement, statement);
         }
+        this.fingerprint = PsiUtils.fingerprint(methodBody.getText());
+    }
+
+    /**
+     * Hash of the tokens of the body. Bodies with different fingerprints differ, bodies with the same fingerprint
+     * are almost certainly identical up to whitespaces and comments.
+     */
+    public long getFingerprint() {
+        return fingerprint;
     }
 
     public int statementCount() {
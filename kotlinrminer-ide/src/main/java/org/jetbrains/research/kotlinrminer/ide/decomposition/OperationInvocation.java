@@ -11,6 +11,7 @@ import java.util.Set;
 import org.jetbrains.kotlin.psi.*;
 import org.jetbrains.research.kotlinrminer.common.decomposition.CodeElementType;
 import org.jetbrains.research.kotlinrminer.common.util.StringDistance;
+import org.jetbrains.research.kotlinrminer.common.util.SymbolTable;
 import org.jetbrains.research.kotlinrminer.ide.diff.UMLModelDiff;
 import org.jetbrains.research.kotlinrminer.ide.uml.UMLOperation;
 import org.jetbrains.research.kotlinrminer.ide.uml.UMLParameter;
@@ -26,7 +27,10 @@ public class OperationInvocation extends AbstractCall {
     public OperationInvocation(KtFile ktFile, String filePath, KtCallExpression invocation) {
         this.locationInfo = new LocationInfo(ktFile, filePath, invocation,
                                              CodeElementType.METHOD_INVOCATION);
-        this.methodName = invocation.getCalleeExpression().getText();
+        //only the names are interned, not the called expressions, e.g. lambdas
+        KtExpression calleeExpression = invocation.getCalleeExpression();
+        this.methodName = calleeExpression instanceof KtNameReferenceExpression ?
+            SymbolTable.symbol(calleeExpression.getText()) : calleeExpression.getText();
         this.typeArguments = invocation.getValueArguments().size();
         this.arguments = new ArrayList<>();
         List<KtValueArgument> args = invocation.getValueArguments();
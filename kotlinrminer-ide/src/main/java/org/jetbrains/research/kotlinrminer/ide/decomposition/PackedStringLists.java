@@ -0,0 +1,92 @@
+package org.jetbrains.research.kotlinrminer.ide.decomposition;
+
+import java.util.*;
+
+/**
+ * Compact, immutable storage of the string lists collected by a {@link Visitor} for a code fragment. All strings
+ * are kept in a single array, and the lists are views delimited by an offset table, instead of a dozen mostly empty
+ * array lists per fragment. Fragments without any string share a single instance.
+ */
+final class PackedStringLists {
+    private static final PackedStringLists EMPTY = new PackedStringLists(new String[0], null);
+    private final String[] values;
+    /**
+     * The end of every list in {@link #values}, every list starts at the end of the previous one.
+     */
+    private final int[] ends;
+
+    private PackedStringLists(String[] values, int[] ends) {
+        this.values = values;
+        this.ends = ends;
+    }
+
+    @SafeVarargs
+    static PackedStringLists pack(List<String>... lists) {
+        int size = 0;
+        for (List<String> list : lists) {
+            size += list.size();
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        String[] values = new String[size];
+        int[] ends = new int[lists.length];
+        int end = 0;
+        for (int i = 0; i < lists.length; i++) {
+            for (String value : lists[i]) {
+                values[end++] = value;
+            }
+            ends[i] = end;
+        }
+        return new PackedStringLists(values, ends);
+    }
+
+    List<String> get(int index) {
+        if (ends == null) {
+            return Collections.emptyList();
+        }
+        int start = index == 0 ? 0 : ends[index - 1];
+        int end = ends[index];
+        if (start == end) {
+            return Collections.emptyList();
+        }
+        return new View(start, end);
+    }
+
+    /**
+     * Returns the shared empty list for an empty list, or a copy of the list, as the visitor reuses its lists.
+     */
+    static <T> List<T> compact(List<T> list) {
+        if (list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(list);
+    }
+
+    static <K, V> Map<K, V> compact(Map<K, V> map) {
+        return map.isEmpty() ? Collections.emptyMap() : new LinkedHashMap<>(map);
+    }
+
+    private class View extends AbstractList<String> implements RandomAccess {
+        private final int start;
+        private final int end;
+
+        private View(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return values[start + index];
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -48,6 +48,7 @@ public class VariableReplacementAnalysis {
     private final UMLOperation callSiteOperation;
     private final UMLOperationDiff operationDiff;
     private final UMLClassBaseDiff classDiff;
+    private final VariableReplacementIndex index;
     private final Set<RenameVariableRefactoring> variableRenames =
         new LinkedHashSet<>();
     private final Set<MergeVariableRefactoring> variableMerges =
@@ -81,6 +82,7 @@ public class VariableReplacementAnalysis {
         this.operationDiff =
             classDiff != null ? classDiff.getOperationDiff(operation1, operation2) : null;
         this.classDiff = classDiff;
+        this.index = new VariableReplacementIndex(mappings, nonMappedLeavesT1, nonMappedLeavesT2);
         findVariableSplits();
         findVariableMerges();
         findConsistentVariableRenames();
@@ -256,7 +258,8 @@ public class VariableReplacementAnalysis {
                         variableInvocationExpressionMap,
                         VariableReplacementWithMethodInvocation.Direction.INVOCATION_TO_VARIABLE);
                 } else if (replacement.getType().equals(Replacement.ReplacementType.VARIABLE_NAME)) {
-                    for (StatementObject statement : nonMappedLeavesT1) {
+                    for (StatementObject statement : index.nonMappedLeavesDeclaringVariable1(
+                        replacement.getBefore())) {
                         VariableDeclaration variableDeclaration =
                             statement.getVariableDeclaration(replacement.getBefore());
                         if (variableDeclaration != null) {
@@ -409,7 +412,8 @@ public class VariableReplacementAnalysis {
                         variableInvocationExpressionMap,
                         VariableReplacementWithMethodInvocation.Direction.VARIABLE_TO_INVOCATION);
                 } else if (replacement.getType().equals(Replacement.ReplacementType.VARIABLE_NAME)) {
-                    for (StatementObject statement : nonMappedLeavesT2) {
+                    for (StatementObject statement : index.nonMappedLeavesDeclaringVariable2(
+                        replacement.getBefore())) {
                         VariableDeclaration variableDeclaration =
                             statement.getVariableDeclaration(replacement.getBefore());
                         if (variableDeclaration != null) {
@@ -922,18 +926,12 @@ public class VariableReplacementAnalysis {
     private boolean replacementInLocalVariableDeclaration(Replacement replacement,
                                                           Set<AbstractCodeMapping> set) {
         VariableDeclaration v1 = null;
-        for (AbstractCodeMapping mapping : mappings) {
-            if (mapping.getReplacements().contains(replacement)) {
-                v1 = mapping.getFragment1().searchVariableDeclaration(replacement.getBefore());
-                break;
-            }
-        }
         VariableDeclaration v2 = null;
-        for (AbstractCodeMapping mapping : mappings) {
-            if (mapping.getReplacements().contains(replacement)) {
-                v2 = mapping.getFragment2().searchVariableDeclaration(replacement.getAfter());
-                break;
-            }
+        List<AbstractCodeMapping> replacementMappings = index.mappingsWithReplacement(replacement);
+        if (!replacementMappings.isEmpty()) {
+            AbstractCodeMapping mapping = replacementMappings.get(0);
+            v1 = mapping.getFragment1().searchVariableDeclaration(replacement.getBefore());
+            v2 = mapping.getFragment2().searchVariableDeclaration(replacement.getAfter());
         }
         Set<VariableDeclaration> allVariableDeclarations1 = new LinkedHashSet<>();
         Set<VariableDeclaration> allVariableDeclarations2 = new LinkedHashSet<>();
@@ -1018,47 +1016,51 @@ public class VariableReplacementAnalysis {
     private boolean inconsistentVariableMapping(VariableDeclaration v1, VariableDeclaration v2,
                                                 Set<AbstractCodeMapping> set) {
         if (v1 != null && v2 != null) {
-            for (AbstractCodeMapping mapping : mappings) {
-                List<VariableDeclaration> variableDeclarations1 =
-                    mapping.getFragment1().getVariableDeclarations();
+            for (AbstractCodeMapping mapping : index.mappingsDeclaringVariable1(v1)) {
                 List<VariableDeclaration> variableDeclarations2 =
                     mapping.getFragment2().getVariableDeclarations();
-                if (variableDeclarations1.contains(v1)) {
-                    if (variableDeclarations2.size() > 0 && !variableDeclarations2.contains(v2)) {
-                        return true;
-                    } else if (variableDeclarations2.size() == 0 && v1.getInitializer() != null &&
-                        mapping.getFragment2().getString().startsWith(v1.getInitializer().getString())) {
-                        return true;
-                    }
+                if (variableDeclarations2.size() > 0 && !variableDeclarations2.contains(v2)) {
+                    return true;
+                } else if (variableDeclarations2.size() == 0 && v1.getInitializer() != null &&
+                    mapping.getFragment2().getString().startsWith(v1.getInitializer().getString())) {
+                    return true;
                 }
-                if (variableDeclarations2.contains(v2)) {
-                    if (variableDeclarations1.size() > 0 && !variableDeclarations1.contains(v1)) {
-                        return true;
-                    } else if (variableDeclarations1.size() == 0 && v2.getInitializer() != null &&
-                        mapping.getFragment1().getString().startsWith(v2.getInitializer().getString())) {
-                        return true;
-                    }
+            }
+            for (AbstractCodeMapping mapping : index.mappingsDeclaringVariable2(v2)) {
+                List<VariableDeclaration> variableDeclarations1 =
+                    mapping.getFragment1().getVariableDeclarations();
+                if (variableDeclarations1.size() > 0 && !variableDeclarations1.contains(v1)) {
+                    return true;
+                } else if (variableDeclarations1.size() == 0 && v2.getInitializer() != null &&
+                    mapping.getFragment1().getString().startsWith(v2.getInitializer().getString())) {
+                    return true;
                 }
-                if (mapping.isExact()) {
-                    for (AbstractCodeMapping referenceMapping : set) {
-                        AbstractCodeFragment statement1 = referenceMapping.getFragment1();
-                        AbstractCodeFragment statement2 = referenceMapping.getFragment2();
-                        boolean containsMapping = true;
-                        if (statement1 instanceof CompositeStatementObject &&
-                            statement2 instanceof CompositeStatementObject &&
-                            statement1.getLocationInfo().getCodeElementType()
-                                .equals(CodeElementType.ENHANCED_FOR_STATEMENT)) {
-                            CompositeStatementObject comp1 = (CompositeStatementObject) statement1;
-                            CompositeStatementObject comp2 = (CompositeStatementObject) statement2;
-                            containsMapping =
-                                comp1.contains(mapping.getFragment1()) && comp2.contains(mapping.getFragment2());
-                        }
-                        if (containsMapping &&
-                            (bothFragmentsUseVariable(v1, mapping) || bothFragmentsUseVariable(v2, mapping)) &&
-                            operation2.loopWithVariables(v1.getVariableName(), v2.getVariableName()) == null) {
-                            return true;
-                        }
+            }
+            if (operation2.loopWithVariables(v1.getVariableName(), v2.getVariableName()) == null) {
+                return exactMappingUsingVariable(index.exactMappingsUsingVariable(v1.getVariableName()), set) ||
+                    exactMappingUsingVariable(index.exactMappingsUsingVariable(v2.getVariableName()), set);
+            }
+        }
+        return false;
+    }
+
+    private static boolean exactMappingUsingVariable(List<AbstractCodeMapping> exactMappings,
+                                                     Set<AbstractCodeMapping> set) {
+        for (AbstractCodeMapping mapping : exactMappings) {
+            for (AbstractCodeMapping referenceMapping : set) {
+                AbstractCodeFragment statement1 = referenceMapping.getFragment1();
+                AbstractCodeFragment statement2 = referenceMapping.getFragment2();
+                if (statement1 instanceof CompositeStatementObject &&
+                    statement2 instanceof CompositeStatementObject &&
+                    statement1.getLocationInfo().getCodeElementType()
+                        .equals(CodeElementType.ENHANCED_FOR_STATEMENT)) {
+                    CompositeStatementObject comp1 = (CompositeStatementObject) statement1;
+                    CompositeStatementObject comp2 = (CompositeStatementObject) statement2;
+                    if (comp1.contains(mapping.getFragment1()) && comp2.contains(mapping.getFragment2())) {
+                        return true;
                     }
+                } else {
+                    return true;
                 }
             }
         }
@@ -1067,13 +1069,11 @@ public class VariableReplacementAnalysis {
 
     private SimpleEntry<VariableDeclaration, UMLOperation> getVariableDeclaration1(
         Replacement replacement) {
-        for (AbstractCodeMapping mapping : mappings) {
-            if (mapping.getReplacements().contains(replacement)) {
-                VariableDeclaration vd =
-                    mapping.getFragment1().searchVariableDeclaration(replacement.getBefore());
-                if (vd != null) {
-                    return new SimpleEntry<>(vd, mapping.getOperation1());
-                }
+        for (AbstractCodeMapping mapping : index.mappingsWithReplacement(replacement)) {
+            VariableDeclaration vd =
+                mapping.getFragment1().searchVariableDeclaration(replacement.getBefore());
+            if (vd != null) {
+                return new SimpleEntry<>(vd, mapping.getOperation1());
             }
         }
         for (UMLParameter parameter : operation1.getParameters()) {
@@ -1095,7 +1095,9 @@ public class VariableReplacementAnalysis {
 
     private SimpleEntry<VariableDeclaration, UMLOperation> getVariableDeclaration1(
         MergeVariableReplacement replacement, String variableName) {
-        for (AbstractCodeMapping mapping : mappings) {
+        String mergedVariable = replacement.getMergedVariables().iterator().next();
+        for (AbstractCodeMapping mapping : index.mappingsWithReplacementOrReplacedVariable(replacement,
+            mergedVariable)) {
             Set<String> foundMergedVariables = new LinkedHashSet<>();
             for (Replacement r : mapping.getReplacements()) {
                 if (replacement.getMergedVariables().contains(r.getBefore())) {
@@ -1129,13 +1131,11 @@ public class VariableReplacementAnalysis {
 
     private SimpleEntry<VariableDeclaration, UMLOperation> getVariableDeclaration2(
         Replacement replacement) {
-        for (AbstractCodeMapping mapping : mappings) {
-            if (mapping.getReplacements().contains(replacement)) {
-                VariableDeclaration vd =
-                    mapping.getFragment2().searchVariableDeclaration(replacement.getAfter());
-                if (vd != null) {
-                    return new SimpleEntry<>(vd, mapping.getOperation2());
-                }
+        for (AbstractCodeMapping mapping : index.mappingsWithReplacement(replacement)) {
+            VariableDeclaration vd =
+                mapping.getFragment2().searchVariableDeclaration(replacement.getAfter());
+            if (vd != null) {
+                return new SimpleEntry<>(vd, mapping.getOperation2());
             }
         }
         for (UMLParameter parameter : operation2.getParameters()) {
@@ -1157,21 +1157,10 @@ public class VariableReplacementAnalysis {
 
     private SimpleEntry<VariableDeclaration, UMLOperation> getVariableDeclaration2(
         SplitVariableReplacement replacement, String variableName) {
-        for (AbstractCodeMapping mapping : mappings) {
-            if (mapping.getReplacements().contains(replacement)) {
-                Set<String> foundSplitVariables = new LinkedHashSet<>();
-                for (Replacement r : mapping.getReplacements()) {
-                    if (replacement.getSplitVariables().contains(r.getAfter())) {
-                        foundSplitVariables.add(r.getAfter());
-                    }
-                }
-                if (mapping.getReplacements().contains(replacement) ||
-                    foundSplitVariables.equals(replacement.getSplitVariables())) {
-                    VariableDeclaration vd = mapping.getFragment2().searchVariableDeclaration(variableName);
-                    if (vd != null) {
-                        return new SimpleEntry<>(vd, mapping.getOperation2());
-                    }
-                }
+        for (AbstractCodeMapping mapping : index.mappingsWithReplacement(replacement)) {
+            VariableDeclaration vd = mapping.getFragment2().searchVariableDeclaration(variableName);
+            if (vd != null) {
+                return new SimpleEntry<>(vd, mapping.getOperation2());
             }
         }
         for (UMLParameter parameter : operation2.getParameters()) {
@@ -1193,7 +1182,9 @@ public class VariableReplacementAnalysis {
 
     private SimpleEntry<VariableDeclaration, UMLOperation> getVariableDeclaration2(
         MergeVariableReplacement replacement) {
-        for (AbstractCodeMapping mapping : mappings) {
+        String mergedVariable = replacement.getMergedVariables().iterator().next();
+        for (AbstractCodeMapping mapping : index.mappingsWithReplacementOrReplacedVariable(replacement,
+            mergedVariable)) {
             Set<String> foundMergedVariables = new LinkedHashSet<>();
             for (Replacement r : mapping.getReplacements()) {
                 if (replacement.getMergedVariables().contains(r.getBefore())) {
@@ -0,0 +1,150 @@
+package org.jetbrains.research.kotlinrminer.ide.decomposition;
+
+import org.jetbrains.research.kotlinrminer.common.replacement.Replacement;
+
+import java.util.*;
+
+/**
+ * Per-variable index of the replacements collected on the mappings of a body mapper and of the
+ * variables declared by its non-mapped leaves. Lets {@link VariableReplacementAnalysis} look up the
+ * mappings of a replacement or a variable instead of scanning all mappings for every candidate rename,
+ * merge and split. Every list keeps the mappings (statements) in their original iteration order.
+ */
+class VariableReplacementIndex {
+    private final Map<AbstractCodeMapping, Integer> positions = new IdentityHashMap<>();
+    private final Map<Replacement, List<AbstractCodeMapping>> mappingsByReplacement = new HashMap<>();
+    private final Map<String, List<AbstractCodeMapping>> mappingsByReplacedVariable = new HashMap<>();
+    private final Map<VariableDeclaration, List<AbstractCodeMapping>> mappingsByDeclaration1 = new HashMap<>();
+    private final Map<VariableDeclaration, List<AbstractCodeMapping>> mappingsByDeclaration2 = new HashMap<>();
+    private final Map<String, List<AbstractCodeMapping>> exactMappingsByVariable = new HashMap<>();
+    private final Map<String, List<StatementObject>> nonMappedLeavesByDeclaredVariable1;
+    private final Map<String, List<StatementObject>> nonMappedLeavesByDeclaredVariable2;
+
+    VariableReplacementIndex(Set<AbstractCodeMapping> mappings,
+                             List<StatementObject> nonMappedLeavesT1,
+                             List<StatementObject> nonMappedLeavesT2) {
+        int position = 0;
+        for (AbstractCodeMapping mapping : mappings) {
+            positions.put(mapping, position++);
+            Set<String> replacedVariables = new HashSet<>();
+            for (Replacement replacement : mapping.getReplacements()) {
+                addToBucket(mappingsByReplacement, replacement, mapping);
+                if (replacedVariables.add(replacement.getBefore())) {
+                    addToBucket(mappingsByReplacedVariable, replacement.getBefore(), mapping);
+                }
+            }
+            for (VariableDeclaration declaration : new LinkedHashSet<>(
+                mapping.getFragment1().getVariableDeclarations())) {
+                addToBucket(mappingsByDeclaration1, declaration, mapping);
+            }
+            for (VariableDeclaration declaration : new LinkedHashSet<>(
+                mapping.getFragment2().getVariableDeclarations())) {
+                addToBucket(mappingsByDeclaration2, declaration, mapping);
+            }
+            if (mapping.isExact()) {
+                Set<String> variables = new LinkedHashSet<>(mapping.getFragment1().getVariables());
+                variables.retainAll(mapping.getFragment2().getVariables());
+                for (String variable : variables) {
+                    addToBucket(exactMappingsByVariable, variable, mapping);
+                }
+            }
+        }
+        this.nonMappedLeavesByDeclaredVariable1 = indexDeclaredVariables(nonMappedLeavesT1);
+        this.nonMappedLeavesByDeclaredVariable2 = indexDeclaredVariables(nonMappedLeavesT2);
+    }
+
+    /**
+     * Mappings containing the given replacement.
+     */
+    List<AbstractCodeMapping> mappingsWithReplacement(Replacement replacement) {
+        return bucket(mappingsByReplacement, replacement);
+    }
+
+    /**
+     * Mappings containing the given replacement or any replacement of the given variable.
+     */
+    List<AbstractCodeMapping> mappingsWithReplacementOrReplacedVariable(Replacement replacement,
+                                                                       String variableName) {
+        List<AbstractCodeMapping> mappings1 = mappingsWithReplacement(replacement);
+        List<AbstractCodeMapping> mappings2 = bucket(mappingsByReplacedVariable, variableName);
+        if (mappings1.isEmpty()) {
+            return mappings2;
+        }
+        if (mappings2.isEmpty()) {
+            return mappings1;
+        }
+        List<AbstractCodeMapping> union = new ArrayList<>(mappings1.size() + mappings2.size());
+        int i = 0;
+        int j = 0;
+        while (i < mappings1.size() || j < mappings2.size()) {
+            if (j == mappings2.size()) {
+                union.add(mappings1.get(i++));
+            } else if (i == mappings1.size()) {
+                union.add(mappings2.get(j++));
+            } else {
+                int position1 = positions.get(mappings1.get(i));
+                int position2 = positions.get(mappings2.get(j));
+                if (position1 < position2) {
+                    union.add(mappings1.get(i++));
+                } else if (position1 > position2) {
+                    union.add(mappings2.get(j++));
+                } else {
+                    union.add(mappings1.get(i++));
+                    j++;
+                }
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Mappings whose first fragment declares the given variable.
+     */
+    List<AbstractCodeMapping> mappingsDeclaringVariable1(VariableDeclaration declaration) {
+        return bucket(mappingsByDeclaration1, declaration);
+    }
+
+    /**
+     * Mappings whose second fragment declares the given variable.
+     */
+    List<AbstractCodeMapping> mappingsDeclaringVariable2(VariableDeclaration declaration) {
+        return bucket(mappingsByDeclaration2, declaration);
+    }
+
+    /**
+     * Exact mappings whose both fragments use the given variable.
+     */
+    List<AbstractCodeMapping> exactMappingsUsingVariable(String variableName) {
+        return bucket(exactMappingsByVariable, variableName);
+    }
+
+    List<StatementObject> nonMappedLeavesDeclaringVariable1(String variableName) {
+        return bucket(nonMappedLeavesByDeclaredVariable1, variableName);
+    }
+
+    List<StatementObject> nonMappedLeavesDeclaringVariable2(String variableName) {
+        return bucket(nonMappedLeavesByDeclaredVariable2, variableName);
+    }
+
+    private static Map<String, List<StatementObject>> indexDeclaredVariables(List<StatementObject> statements) {
+        Map<String, List<StatementObject>> index = new HashMap<>();
+        for (StatementObject statement : statements) {
+            Set<String> declaredVariables = new HashSet<>();
+            for (VariableDeclaration declaration : statement.getVariableDeclarations()) {
+                if (declaredVariables.add(declaration.getVariableName())) {
+                    addToBucket(index, declaration.getVariableName(), statement);
+                }
+            }
+        }
+        return index;
+    }
+
+    private static <K, V> void addToBucket(Map<K, List<V>> index, K key, V value) {
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+    }
+
+    private static <K, V> List<V> bucket(Map<K, List<V>> index, K key) {
+        List<V> bucket = index.get(key);
+        return bucket != null ? Collections.unmodifiableList(bucket) : Collections.emptyList();
+    }
+}
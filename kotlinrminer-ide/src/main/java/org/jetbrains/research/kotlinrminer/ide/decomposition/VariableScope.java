@@ -2,8 +2,7 @@ package org.jetbrains.research.kotlinrminer.ide.decomposition;
 
 import com.intellij.openapi.editor.Document;
 import org.jetbrains.kotlin.psi.KtFile;
-
-import static org.jetbrains.research.kotlinrminer.ide.util.PsiUtils.countColumn;
+import org.jetbrains.research.kotlinrminer.ide.util.LineTable;
 
 public class VariableScope {
     private final String filePath;
@@ -20,15 +19,16 @@ public class VariableScope {
         this.endOffset = endOffset;
 
         Document document = ktFile.getViewProvider().getDocument();
-        this.startLine = document != null ? document.getLineNumber(startOffset) : 0;
-        this.endLine = document.getLineNumber(endOffset);
+        LineTable lineTable = LineTable.of(document);
+        this.startLine = lineTable.getLineNumber(startOffset);
+        this.endLine = lineTable.getLineNumber(endOffset);
         //columns are 0-based
-        this.startColumn = countColumn(startLine, document);
+        this.startColumn = lineTable.getIndentation(startLine);
         //convert to 1-based
         if (this.startColumn > 0) {
             this.startColumn += 1;
         }
-        this.endColumn = countColumn(endLine, document);
+        this.endColumn = lineTable.getIndentation(endLine);
         //convert to 1-based
         if (this.endColumn > 0) {
             this.endColumn += 1;
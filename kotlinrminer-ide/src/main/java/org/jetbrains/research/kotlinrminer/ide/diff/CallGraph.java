@@ -0,0 +1,91 @@
+package org.jetbrains.research.kotlinrminer.ide.diff;
+
+import org.jetbrains.research.kotlinrminer.ide.decomposition.OperationInvocation;
+import org.jetbrains.research.kotlinrminer.ide.uml.UMLOperation;
+import org.jetbrains.research.kotlinrminer.ide.uml.UMLType;
+
+import java.util.*;
+
+/**
+ * Invocation graph among a list of operations (typically the added or removed operations of a class).
+ * The calls of each operation and the call tree rooted at each operation are computed once
+ * and shared by all the extract/inline method checks performed against these operations.
+ * Lookups are synchronized, so a graph can be shared by detections running concurrently.
+ */
+public class CallGraph {
+    private final List<UMLOperation> operations;
+    private final UMLModelDiff modelDiff;
+    private final Map<UMLOperation, List<CallTreeNode>> callMap = new IdentityHashMap<>();
+    private final Map<UMLOperation, CallTree> callTreeMap = new IdentityHashMap<>();
+
+    public CallGraph(List<UMLOperation> operations, UMLModelDiff modelDiff) {
+        this.operations = operations;
+        this.modelDiff = modelDiff;
+    }
+
+    /**
+     * Returns the calls from the given operation to the operations of this graph,
+     * ordered by the called operation first and by the position of the invocation second.
+     */
+    public synchronized List<CallTreeNode> getCalls(UMLOperation operation) {
+        List<CallTreeNode> calls = callMap.get(operation);
+        if (calls == null) {
+            calls = new ArrayList<>();
+            List<OperationInvocation> invocations = operation.getAllOperationInvocations();
+            if (!invocations.isEmpty()) {
+                Map<String, UMLType> variableTypeMap = operation.variableTypeMap();
+                for (UMLOperation calledOperation : operations) {
+                    for (OperationInvocation invocation : invocations) {
+                        if (invocation.matchesOperation(calledOperation, variableTypeMap, modelDiff)) {
+                            calls.add(new CallTreeNode(operation, calledOperation, invocation));
+                        }
+                    }
+                }
+            }
+            callMap.put(operation, calls);
+        }
+        return calls;
+    }
+
+    /**
+     * Returns the tree of the operations of this graph reachable from the given operation.
+     * Each operation appears once, under the first call that reaches it in depth-first order.
+     * The root has no original operation and no invocation.
+     */
+    public synchronized CallTree getCallTree(UMLOperation operation) {
+        CallTree callTree = callTreeMap.get(operation);
+        if (callTree == null) {
+            callTree = generateCallTree(operation);
+            callTreeMap.put(operation, callTree);
+        }
+        return callTree;
+    }
+
+    private CallTree generateCallTree(UMLOperation operation) {
+        CallTreeNode root = new CallTreeNode(null, operation, null);
+        CallTree callTree = new CallTree(root);
+        Deque<CallTreeNode> parents = new ArrayDeque<>();
+        Deque<Iterator<CallTreeNode>> pendingCalls = new ArrayDeque<>();
+        parents.push(root);
+        pendingCalls.push(getCalls(operation).iterator());
+        while (!parents.isEmpty()) {
+            Iterator<CallTreeNode> calls = pendingCalls.peek();
+            if (!calls.hasNext()) {
+                parents.pop();
+                pendingCalls.pop();
+                continue;
+            }
+            CallTreeNode call = calls.next();
+            if (!callTree.contains(call.getInvokedOperation())) {
+                CallTreeNode node =
+                    new CallTreeNode(call.getOriginalOperation(), call.getInvokedOperation(), call.getInvocation());
+                callTree.addChild(parents.peek(), node);
+                parents.push(node);
+                pendingCalls.push(getCalls(node.getInvokedOperation()).iterator());
+            }
+        }
+        //cache the node order now, so that shared trees are never modified afterwards
+        callTree.getNodesInBreadthFirstOrder();
+        return callTree;
+    }
+}
@@ -2,12 +2,10 @@ package org.jetbrains.research.kotlinrminer.ide.diff;
 
 import java.util.Comparator;
 
-public class ClassMoveComparator implements Comparator<UMLClassMoveDiff> {
+public class ClassMoveComparator implements Comparator<UMLClassMatchCandidate> {
 
     @Override
-    public int compare(UMLClassMoveDiff o1, UMLClassMoveDiff o2) {
-        double sourceFolderDistance1 = o1.getMovedClass().normalizedSourceFolderDistance(o1.getOriginalClass());
-        double sourceFolderDistance2 = o2.getMovedClass().normalizedSourceFolderDistance(o2.getOriginalClass());
-        return Double.compare(sourceFolderDistance1, sourceFolderDistance2);
+    public int compare(UMLClassMatchCandidate o1, UMLClassMatchCandidate o2) {
+        return Double.compare(o1.getSourceFolderDistance(), o2.getSourceFolderDistance());
     }
 }
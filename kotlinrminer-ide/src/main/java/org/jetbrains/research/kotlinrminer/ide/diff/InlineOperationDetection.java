@@ -14,54 +14,69 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-public class InlineOperationDetection {
+public class InlineOperationDetection implements OperationDetection<InlineOperationRefactoring> {
     private final UMLOperationBodyMapper mapper;
     private final List<UMLOperation> removedOperations;
     private final UMLClassBaseDiff classDiff;
     private final UMLModelDiff modelDiff;
     private final List<OperationInvocation> operationInvocations;
-    private final Map<CallTreeNode, CallTree> callTreeMap = new LinkedHashMap<>();
+    private final Map<String, UMLType> variableTypeMap;
+    private final CallGraph callGraph;
 
     public InlineOperationDetection(UMLOperationBodyMapper mapper,
                                     List<UMLOperation> removedOperations,
                                     UMLClassBaseDiff classDiff,
                                     UMLModelDiff modelDiff) {
+        this(mapper, removedOperations, new CallGraph(removedOperations, modelDiff), classDiff, modelDiff);
+    }
+
+    /**
+     * @param callGraph invocation graph of {@code removedOperations}, which may be shared between detections
+     */
+    public InlineOperationDetection(UMLOperationBodyMapper mapper,
+                                    List<UMLOperation> removedOperations,
+                                    CallGraph callGraph,
+                                    UMLClassBaseDiff classDiff,
+                                    UMLModelDiff modelDiff) {
         this.mapper = mapper;
         this.removedOperations = removedOperations;
+        this.callGraph = callGraph;
         this.classDiff = classDiff;
         this.modelDiff = modelDiff;
         this.operationInvocations = getInvocationsInTargetOperationBeforeInline(mapper);
+        this.variableTypeMap = mapper.getOperation1().variableTypeMap();
+    }
+
+    @Override
+    public boolean callsOperation(UMLOperation removedOperation) {
+        for (OperationInvocation invocation : operationInvocations) {
+            if (invocation.matchesOperation(removedOperation, variableTypeMap, modelDiff)) {
+                return true;
+            }
+        }
+        return false;
     }
 
+    @Override
     public List<InlineOperationRefactoring> check(UMLOperation removedOperation) throws
         RefactoringMinerTimedOutException {
         List<InlineOperationRefactoring> refactorings = new ArrayList<>();
         if (!mapper.getNonMappedLeavesT2().isEmpty() || !mapper.getNonMappedInnerNodesT2().isEmpty() ||
             !mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
             List<OperationInvocation> removedOperationInvocations =
-                matchingInvocations(removedOperation, operationInvocations, mapper.getOperation1().variableTypeMap());
+                matchingInvocations(removedOperation, operationInvocations, variableTypeMap);
             if (removedOperationInvocations.size() > 0 && !invocationMatchesWithAddedOperation(
-                removedOperationInvocations.get(0), mapper.getOperation1().variableTypeMap(),
+                removedOperationInvocations.get(0), variableTypeMap,
                 mapper.getOperation2().getAllOperationInvocations())) {
                 OperationInvocation removedOperationInvocation = removedOperationInvocations.get(0);
-                CallTreeNode root =
-                    new CallTreeNode(mapper.getOperation1(), removedOperation, removedOperationInvocation);
-                CallTree callTree;
-                if (callTreeMap.containsKey(root)) {
-                    callTree = callTreeMap.get(root);
-                } else {
-                    callTree = new CallTree(root);
-                    generateCallTree(removedOperation, root, callTree);
-                    callTreeMap.put(root, callTree);
-                }
+                CallTree callTree = callGraph.getCallTree(removedOperation);
                 UMLOperationBodyMapper operationBodyMapper =
                     createMapperForInlinedMethod(mapper, removedOperation, removedOperationInvocation);
                 List<AbstractCodeMapping> additionalExactMatches = new ArrayList<>();
                 List<CallTreeNode> nodesInBreadthFirstOrder = callTree.getNodesInBreadthFirstOrder();
                 for (int i = 1; i < nodesInBreadthFirstOrder.size(); i++) {
                     CallTreeNode node = nodesInBreadthFirstOrder.get(i);
-                    if (matchingInvocations(node.getInvokedOperation(), operationInvocations,
-                        mapper.getOperation1().variableTypeMap()).size() == 0) {
+                    if (!callsOperation(node.getInvokedOperation())) {
                         UMLOperationBodyMapper nestedMapper =
                             createMapperForInlinedMethod(mapper, node.getInvokedOperation(), node.getInvocation());
                         additionalExactMatches.addAll(nestedMapper.getExactMatches());
@@ -137,21 +152,6 @@ public class InlineOperationDetection {
         return new UMLOperationBodyMapper(removedOperation, mapper, parameterToArgumentMap, classDiff);
     }
 
-    private void generateCallTree(UMLOperation operation, CallTreeNode parent, CallTree callTree) {
-        List<OperationInvocation> invocations = operation.getAllOperationInvocations();
-        for (UMLOperation removedOperation : removedOperations) {
-            for (OperationInvocation invocation : invocations) {
-                if (invocation.matchesOperation(removedOperation, operation.variableTypeMap(), modelDiff)) {
-                    if (!callTree.contains(removedOperation)) {
-                        CallTreeNode node = new CallTreeNode(operation, removedOperation, invocation);
-                        parent.addChild(node);
-                        generateCallTree(removedOperation, node, callTree);
-                    }
-                }
-            }
-        }
-    }
-
 /*
     private List<OperationInvocation> getInvocationsInTargetOperationBeforeInline(UMLOperationBodyMapper mapper) {
         List<OperationInvocation> operationInvocations = mapper.getOperation1().getAllOperationInvocations();
@@ -9,9 +9,19 @@ import org.jetbrains.research.kotlinrminer.ide.decomposition.*;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class UMLType implements Serializable, LocationInfoProvider {
+    private static final int PARSED_TYPES_CACHE_SIZE = 8192;
+    /**
+     * Types parsed from their text. The cached types are never returned, as the callers may modify the types they
+     * get: every call returns a new top-level type sharing the type arguments, which are never modified, of the
+     * cached one.
+     */
+    private static final Map<String, LeafType> parsedTypes = new ConcurrentHashMap<>();
     private LocationInfo locationInfo;
     private int arrayDimension;
     private List<UMLType> typeArguments = new ArrayList<>();
@@ -53,6 +63,9 @@ public abstract class UMLType implements Serializable, LocationInfoProvider {
     }
 
     private boolean equalTypeArguments(UMLType type) {
+        if (this.typeArguments == type.typeArguments) {
+            return true;
+        }
         String thisTypeArguments = this.typeArgumentsToString();
         String otherTypeArguments = type.typeArgumentsToString();
         if ((thisTypeArguments.equals("<?>") && otherTypeArguments.startsWith("<? ")) ||
@@ -149,7 +162,28 @@ public abstract class UMLType implements Serializable, LocationInfoProvider {
     }
 
     public static LeafType extractTypeObject(String qualifiedName) {
-        int arrayDimension = 0;
+        UMLType parsedType = parseTypeObject(qualifiedName);
+        UMLType typeObject = new LeafType(parsedType.getClassType());
+        typeObject.typeArguments = parsedType.typeArguments;
+        return (LeafType) typeObject;
+    }
+
+    /**
+     * Returns the cached type parsed from the text, which must not be modified.
+     */
+    private static LeafType parseTypeObject(String qualifiedName) {
+        LeafType parsedType = parsedTypes.get(qualifiedName);
+        if (parsedType == null) {
+            parsedType = parseTypeObjectText(qualifiedName);
+            if (parsedTypes.size() >= PARSED_TYPES_CACHE_SIZE) {
+                parsedTypes.clear();
+            }
+            parsedTypes.put(qualifiedName, parsedType);
+        }
+        return parsedType;
+    }
+
+    private static LeafType parseTypeObjectText(String qualifiedName) {
         List<UMLType> typeArgumentDecomposition = new ArrayList<>();
         if (qualifiedName.contains("<") && qualifiedName.contains(">")) {
             String typeArguments =
@@ -161,7 +195,7 @@ public abstract class UMLType implements Serializable, LocationInfoProvider {
                     sb.append(charAt);
                 } else {
                     if (sb.length() > 0 && equalOpeningClosingTags(sb.toString())) {
-                        typeArgumentDecomposition.add(extractTypeObject(sb.toString()));
+                        typeArgumentDecomposition.add(parseTypeObject(sb.toString()));
                         sb = new StringBuilder();
                     } else {
                         sb.append(charAt);
@@ -169,13 +203,13 @@ public abstract class UMLType implements Serializable, LocationInfoProvider {
                 }
             }
             if (sb.length() > 0) {
-                typeArgumentDecomposition.add(extractTypeObject(sb.toString()));
+                typeArgumentDecomposition.add(parseTypeObject(sb.toString()));
             }
             qualifiedName = qualifiedName.substring(0, qualifiedName.indexOf("<"));
         }
         UMLType typeObject = new LeafType(qualifiedName);
-        typeObject.arrayDimension = arrayDimension;
-        typeObject.typeArguments = typeArgumentDecomposition;
+        typeObject.typeArguments = typeArgumentDecomposition.isEmpty() ?
+            Collections.emptyList() : Collections.unmodifiableList(typeArgumentDecomposition);
         return (LeafType) typeObject;
     }
 
@@ -1,22 +1,33 @@
 package org.jetbrains.research.kotlinrminer.ide.util;
 
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.kotlin.lexer.KotlinLexer;
+import org.jetbrains.kotlin.lexer.KtTokens;
 
 public class PsiUtils {
     public static int countColumn(int lineNumber, Document doc) {
-        TextRange textRange = new TextRange(doc.getLineStartOffset(lineNumber), doc.getLineEndOffset(lineNumber));
-        final String line =
-            textRange.substring(doc.getText());
-        int count = 0;
-        for (char c : line.toCharArray()) {
-            if (c == ' ')
-                count++;
-            else if (c == '\t')
-                count += 4;
-            else
-                return count;
+        return LineTable.of(doc).getIndentation(lineNumber);
+    }
+
+    /**
+     * Hashes the tokens of a code fragment, ignoring whitespaces and comments.
+     */
+    public static long fingerprint(CharSequence text) {
+        KotlinLexer lexer = new KotlinLexer();
+        lexer.start(text);
+        long hash = 0xcbf29ce484222325L;
+        IElementType tokenType;
+        while ((tokenType = lexer.getTokenType()) != null) {
+            if (!KtTokens.WHITESPACES.contains(tokenType) && !KtTokens.COMMENTS.contains(tokenType)) {
+                for (int i = lexer.getTokenStart(); i < lexer.getTokenEnd(); i++) {
+                    hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+                }
+                //separates the tokens, so that e.g. "a b" and "ab" differ
+                hash = (hash ^ 0xffff) * 0x100000001b3L;
+            }
+            lexer.advance();
         }
-        return count;
+        return hash;
     }
 }